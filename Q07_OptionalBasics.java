@@ -1,5 +1,6 @@
 // Q07: Optional basics
 // Java example (requires Java 8 or later)
+// See Q80_PrimitiveMaybe for allocation-free map/filter/orElse on primitive and sentinel values
 
 import java.util.*;
 public class Q07_OptionalBasics {
@@ -1,5 +1,6 @@
 // Q08: Optional orElse vs orElseGet
 // Java example (requires Java 8 or later)
+// See Q79_LazyValues for computing a default at most once (memoized, thread-safe)
 
 import java.util.*;
 public class Q08_OptionalOrElseOrElseGet {
@@ -16,3 +16,4 @@ public class Q16_TryWithResources {
         System.out.println();
     }
 }
+// See Q63_StreamingLineReader for bulk, UTF-8-safe reading of large inputs with the same try-with-resources shape.
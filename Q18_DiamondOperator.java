@@ -1,5 +1,6 @@
 // Q18: Diamond operator improvements
 // Java example (requires Java 7+ or later)
+// See Q77_OpenAddressingMaps for open-addressing maps with int values (and an insertion-ordered one)
 
 import java.util.*;
 public class Q18_DiamondOperator {
@@ -1,5 +1,6 @@
 // Q24: Records
 // Java example (requires Java 16 or later)
+// See Q76_OffHeapPersonStore for storing millions of Person rows off-heap in columns
 
 public class Q24_RecordsExample {
     // Record declaration (Java 16+). For single-file compilation, define record at top level in its own file.
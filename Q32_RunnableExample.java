@@ -1,5 +1,6 @@
 // Q32: Create thread with Runnable
 // Java example (requires Java 1.0 or later)
+// See Q75_RingBuffer for passing data from one thread to another without locks
 
 public class Q32_RunnableExample {
     public static void main(String[] args) throws InterruptedException {
@@ -1,5 +1,6 @@
 // Q33: ExecutorService submit()
 // Java example (requires Java 5 or later)
+// See Q73_WorkStealingExecutor for a work-stealing executor suited to many tiny tasks
 
 import java.util.concurrent.*;
 public class Q33_ExecutorServiceSubmit {
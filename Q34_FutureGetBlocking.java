@@ -1,5 +1,6 @@
 // Q34: Future get() blocking
 // Java example (requires Java 5 or later)
+// See Q73_WorkStealingExecutor for a work-stealing executor suited to many tiny tasks
 
 import java.util.concurrent.*;
 public class Q34_FutureGetBlocking {
@@ -1,6 +1,7 @@
 // Q35: ScheduledExecutorService
 // Java example (Java 5+)
 // Demonstrates scheduling a single task and waiting for its completion
+// See Q72_TimerWheelScheduler for a timing-wheel scheduler with O(1) schedule/cancel
 
 import java.util.concurrent.*;
 
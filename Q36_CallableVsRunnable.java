@@ -1,5 +1,6 @@
 // Q36: Callable vs Runnable
 // Java example (requires Java 5 or later)
+// See Q73_WorkStealingExecutor for a work-stealing executor suited to many tiny tasks
 
 import java.util.concurrent.*;
 public class Q36_CallableVsRunnable {
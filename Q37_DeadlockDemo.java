@@ -29,3 +29,4 @@ public class Q37_DeadlockDemo {
         System.out.println("If program stuck, deadlock occurred (you may see no second print).");
     }
 }
+// See Q59_DeadlockWatchdog for detecting this deadlock at runtime and avoiding it with ordered tryLock acquisition.
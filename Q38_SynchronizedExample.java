@@ -18,3 +18,4 @@ public class Q38_SynchronizedExample {
     }
 }
 // Note: The lock uses SynchronizedExample.class symbolically; actual lock object used above is the Class object.
+// See Q58_StripedCounters for CAS, striped and per-thread batched counters that avoid this single global lock.
@@ -22,3 +22,4 @@ public class Q39_ReentrantLockExample {
         System.out.println("v=" + v);
     }
 }
+// See Q58_StripedCounters for CAS, striped and per-thread batched counters that avoid this single global lock.
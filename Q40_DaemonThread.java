@@ -1,5 +1,6 @@
 // Q40: Daemon thread example
 // Java example (requires Java 1.0 or later)
+// See Q74_BackgroundWorker for a worker that parks instead of polling and drains on shutdown
 
 public class Q40_DaemonThread {
     public static void main(String[] args) throws InterruptedException {
@@ -9,7 +10,7 @@ public class Q40_DaemonThread {
                 try { Thread.sleep(200); } catch (InterruptedException e) { break; }
             }
         });
-       // daemon.setDaemon(true);
+        daemon.setDaemon(true); // without this the JVM never exits
         daemon.start();
         Thread.sleep(500); // main sleeps then exits; daemon will be terminated automatically
         System.out.println("Main thread exiting");
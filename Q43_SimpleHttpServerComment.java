@@ -8,6 +8,7 @@ import com.sun.net.httpserver.HttpExchange;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
 
 public class Q43_SimpleHttpServerComment {
 
@@ -21,16 +22,16 @@ public class Q43_SimpleHttpServerComment {
         server.createContext("/", new HttpHandler() {
             @Override
             public void handle(HttpExchange exchange) throws IOException {
-                String response = "Hello from Java Simple HTTP Server!";
-                exchange.sendResponseHeaders(200, response.getBytes().length);
+                byte[] response = "Hello from Java Simple HTTP Server!".getBytes(StandardCharsets.UTF_8); // encode once
+                exchange.sendResponseHeaders(200, response.length);
                 try (OutputStream os = exchange.getResponseBody()) {
-                    os.write(response.getBytes());
+                    os.write(response);
                 }
             }
         });
 
         // Start the server
-        server.setExecutor(null); // Use default executor
+        server.setExecutor(null); // Use default executor (the single dispatcher thread, see Q61 for alternatives)
         server.start();
 
         System.out.println("Server started on http://localhost:8080/");
@@ -4,5 +4,6 @@
 public class Q48_StructuredConcurrencyComment {
     public static void main(String[] args) {
         System.out.println("Structured concurrency APIs are available as incubating/preview modules in Java 21+.");
+        System.out.println("See Q70_StructuredTaskScopes for a working scope built on virtual threads.");
     }
 }
@@ -1,5 +1,7 @@
 // Q49: Sequenced Collections
 // Java example (Java 21+ recommended for sequenced collection enhancements)
+// See Q77_OpenAddressingMaps for open-addressing maps with int values (and an insertion-ordered one)
+// See Q78_ConcurrentCache for a concurrent bounded cache built on top of this ordering idea
 
 import java.util.*;
 
@@ -1,5 +1,6 @@
 // Q51: Map.of and Map.copyOf
 // Java example (requires Java 9 or later)
+// See Q77_OpenAddressingMaps for open-addressing maps with int values (and an insertion-ordered one)
 
 import java.util.*;
 public class Q51_MapOfCopyOf {
@@ -1,5 +1,6 @@
 // Q53: Sorting with Comparator & lambdas
 // Java example (requires Java 8 or later)
+// See Q81_ExternalSort for sorting millions of strings (or more than fits on the heap) case-insensitively
 
 import java.util.*;
 public class Q53_SortingComparator {
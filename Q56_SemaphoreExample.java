@@ -25,12 +25,14 @@ public class Q56_SemaphoreExample {
             try {
                 System.out.println(threadName + " is waiting for a permit.");
                 semaphore.acquire(); // acquire a permit
-                System.out.println(threadName + " acquired a permit.");
-
-                Thread.sleep(2000); // simulate some work
-
-                System.out.println(threadName + " releasing permit.");
-                semaphore.release(); // release permit
+                try {
+                    System.out.println(threadName + " acquired a permit.");
+
+                    Thread.sleep(2000); // simulate some work
+                } finally {
+                    System.out.println(threadName + " releasing permit.");
+                    semaphore.release(); // release permit even if interrupted, otherwise it leaks
+                }
             } catch (InterruptedException e) {
                 Thread.currentThread().interrupt();
             }
@@ -42,3 +44,4 @@ public class Q56_SemaphoreExample {
         }
     }
 }
+// See Q60_AdaptiveConcurrencyLimiter for a limit that adapts to measured latency instead of a fixed 3 permits.
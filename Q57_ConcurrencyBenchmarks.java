@@ -0,0 +1,294 @@
+// Q57: Benchmarking the concurrency examples (Q33, Q38, Q39, Q41, Q47, Q56)
+// Java example (requires Java 21 or later)
+//
+// Question: Why are System.out.println timings around a single run misleading, and how do you measure
+// throughput and tail latency of a concurrency pattern properly?
+// Answer: Warm the JIT up first, run for a fixed wall-clock window on N threads, record every operation
+// into an allocation-free histogram and report throughput plus percentiles (p50/p99), not a single duration.
+//
+// Run:  java Q57_ConcurrencyBenchmarks [report.json] [warmupMs] [measureMs] [maxThreads]
+// The JSON report contains the JVM version so results from different JDKs / machines can be compared.
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.locks.*;
+
+public class Q57_ConcurrencyBenchmarks {
+
+    // A single benchmark operation; threadIndex lets an op keep per-thread state without ThreadLocal lookups.
+    @FunctionalInterface
+    public interface Op {
+        void run(int threadIndex) throws Exception;
+    }
+
+    // Log-linear latency histogram (16 linear sub-buckets per power of two), no allocation while recording.
+    public static final class Histogram {
+        private static final int SUB_BITS = 4;
+        private static final int SUB = 1 << SUB_BITS;
+        private final long[] counts = new long[64 * SUB];
+        private long total;
+
+        public void record(long nanos) {
+            if (nanos < 0) nanos = 0;
+            counts[index(nanos)]++;
+            total++;
+        }
+
+        public void merge(Histogram other) {
+            for (int i = 0; i < counts.length; i++) counts[i] += other.counts[i];
+            total += other.total;
+        }
+
+        public long count() { return total; }
+
+        // Returns the upper bound of the bucket holding the requested percentile (0..100).
+        public long percentile(double p) {
+            if (total == 0) return 0;
+            long rank = (long) Math.ceil(total * p / 100.0);
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) return upperBound(i);
+            }
+            return upperBound(counts.length - 1);
+        }
+
+        private static int index(long v) {
+            if (v < SUB) return (int) v;
+            int msb = 63 - Long.numberOfLeadingZeros(v);
+            int sub = (int) (v >>> (msb - SUB_BITS)) & (SUB - 1);
+            return (msb - SUB_BITS + 1) * SUB + sub;
+        }
+
+        private static long upperBound(int i) {
+            if (i < SUB) return i;
+            int msb = i / SUB + SUB_BITS - 1;
+            int sub = i % SUB;
+            return ((long) (SUB + sub + 1) << (msb - SUB_BITS)) - 1;
+        }
+    }
+
+    public record Result(String benchmark, Map<String, Object> params, int threads,
+                         long ops, double opsPerSec, long p50Nanos, long p99Nanos) {
+
+        String toJson() {
+            StringBuilder sb = new StringBuilder("{\"benchmark\":\"").append(benchmark).append("\",\"params\":{");
+            int i = 0;
+            for (Map.Entry<String, Object> e : params.entrySet()) {
+                if (i++ > 0) sb.append(',');
+                sb.append('"').append(e.getKey()).append("\":");
+                Object v = e.getValue();
+                if (v instanceof Number) sb.append(v); else sb.append('"').append(v).append('"');
+            }
+            return sb.append("},\"threads\":").append(threads)
+                    .append(",\"ops\":").append(ops)
+                    .append(",\"opsPerSec\":").append(String.format(Locale.ROOT, "%.1f", opsPerSec))
+                    .append(",\"p50Nanos\":").append(p50Nanos)
+                    .append(",\"p99Nanos\":").append(p99Nanos)
+                    .append('}').toString();
+        }
+    }
+
+    // JMH Blackhole idea: results must be used or the JIT removes the work that produced them, but writing them to
+    // one shared (volatile) field turns every multi-threaded benchmark into a benchmark of that cache line.
+    // Benchmark threads fold results into their own slot, 128 bytes away from any other thread's, and the slots
+    // are published once after the run. Code without a thread index (pool tasks) uses consume(long), which only
+    // reads two volatile fields that are never written, so their cache line stays shared by all cores.
+    public static final class Blackhole {
+        private static final int STRIDE = 16; // longs per slot: two cache lines, also beyond adjacent-line prefetch
+        private static volatile long never1 = 1, never2 = 2;
+        private static volatile long published;
+        private final long[] slots;
+
+        Blackhole(int threads) { slots = new long[(threads + 2) * STRIDE]; } // padding before the first slot too
+
+        // Only the thread with this index may call it
+        public void consume(int threadIndex, long value) { slots[(threadIndex + 1) * STRIDE] ^= value; }
+
+        public static void consume(long value) {
+            if (value == never1 & value == never2) never1 = value; // never true, but the JIT cannot know that
+        }
+
+        void publish() {
+            long x = 0;
+            for (int i = STRIDE; i < slots.length; i += STRIDE) x ^= slots[i];
+            published = x;
+        }
+    }
+
+    // Minimal JMH-style runner: warmup window, measurement window, per-thread histograms merged at the end.
+    // Ops pass their results to consume(threadIndex, value) so the JIT cannot drop the measured work.
+    public static final class Harness {
+        private final long warmupNanos;
+        private final long measureNanos;
+        private final List<Result> results = new ArrayList<>();
+        private Blackhole blackhole = new Blackhole(0);
+
+        public Harness(long warmupMillis, long measureMillis) {
+            this.warmupNanos = TimeUnit.MILLISECONDS.toNanos(warmupMillis);
+            this.measureNanos = TimeUnit.MILLISECONDS.toNanos(measureMillis);
+        }
+
+        public void consume(int threadIndex, long value) { blackhole.consume(threadIndex, value); }
+
+        public Result run(String name, Map<String, Object> params, int threads, Op op) throws InterruptedException {
+            blackhole = new Blackhole(threads); // Thread.start() publishes it to the workers
+            Histogram[] perThread = new Histogram[threads];
+            CyclicBarrier start = new CyclicBarrier(threads + 1);
+            long[] deadlines = new long[2];
+            Thread[] workers = new Thread[threads];
+            Throwable[] failure = new Throwable[1];
+            for (int t = 0; t < threads; t++) {
+                final int idx = t;
+                perThread[t] = new Histogram();
+                workers[t] = new Thread(() -> {
+                    Histogram h = perThread[idx];
+                    try {
+                        start.await();
+                        long warmupEnd = deadlines[0], measureEnd = deadlines[1];
+                        while (System.nanoTime() < warmupEnd) op.run(idx);
+                        long now;
+                        while ((now = System.nanoTime()) < measureEnd) {
+                            op.run(idx);
+                            h.record(System.nanoTime() - now);
+                        }
+                    } catch (Throwable e) {
+                        synchronized (failure) { if (failure[0] == null) failure[0] = e; }
+                    }
+                }, name + "-" + t);
+                workers[t].start();
+            }
+            long now = System.nanoTime();
+            deadlines[0] = now + warmupNanos;
+            deadlines[1] = now + warmupNanos + measureNanos;
+            try {
+                start.await(); // barrier publishes deadlines to workers (happens-before)
+            } catch (BrokenBarrierException e) {
+                throw new IllegalStateException(e);
+            }
+            for (Thread w : workers) w.join();
+            blackhole.publish();
+            if (failure[0] != null) throw new IllegalStateException(name + " failed", failure[0]);
+
+            Histogram merged = new Histogram();
+            for (Histogram h : perThread) merged.merge(h);
+            double seconds = measureNanos / 1e9;
+            Result r = new Result(name, params, threads, merged.count(), merged.count() / seconds,
+                    merged.percentile(50), merged.percentile(99));
+            results.add(r);
+            System.out.printf(Locale.ROOT, "%-28s %-28s threads=%-3d %,14.0f ops/s  p50=%,8d ns  p99=%,10d ns%n",
+                    name, params, threads, r.opsPerSec(), r.p50Nanos(), r.p99Nanos());
+            return r;
+        }
+
+        public List<Result> results() { return results; }
+
+        public String toJson() {
+            StringBuilder sb = new StringBuilder("{\n  \"jvm\":{\"version\":\"")
+                    .append(System.getProperty("java.version")).append("\",\"vm\":\"")
+                    .append(System.getProperty("java.vm.name")).append("\",\"cpus\":")
+                    .append(Runtime.getRuntime().availableProcessors()).append("},\n  \"results\":[\n");
+            for (int i = 0; i < results.size(); i++) {
+                sb.append("    ").append(results.get(i).toJson()).append(i + 1 < results.size() ? ",\n" : "\n");
+            }
+            return sb.append("  ]\n}\n").toString();
+        }
+
+        public void writeReport(String file) throws IOException {
+            if (file == null) {
+                System.out.print(toJson());
+            } else {
+                Files.writeString(Path.of(file), toJson(), StandardCharsets.UTF_8);
+                System.out.println("Report written to " + file);
+            }
+        }
+    }
+
+    // CPU "payload" without side effects: callers must consume the result (Harness.consume or Blackhole.consume).
+    public static long work(int payload) {
+        long x = payload;
+        for (int i = 0; i < payload; i++) x = x * 6364136223846793005L + 1442695040888963407L;
+        return x;
+    }
+
+    public static Map<String, Object> params(Object... kv) {
+        Map<String, Object> m = new LinkedHashMap<>();
+        for (int i = 0; i < kv.length; i += 2) m.put((String) kv[i], kv[i + 1]);
+        return m;
+    }
+
+    public static int[] threadCounts(int max) {
+        List<Integer> list = new ArrayList<>();
+        for (int t = 1; t <= max; t *= 2) list.add(t);
+        return list.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private static long counter;
+    private static final ReentrantLock lock = new ReentrantLock();
+
+    public static void main(String[] args) throws Exception {
+        String out = args.length > 0 ? args[0] : null;
+        long warmup = args.length > 1 ? Long.parseLong(args[1]) : 200;
+        long measure = args.length > 2 ? Long.parseLong(args[2]) : 500;
+        int maxThreads = args.length > 3 ? Integer.parseInt(args[3])
+                : Math.min(8, Runtime.getRuntime().availableProcessors());
+        Harness h = new Harness(warmup, measure);
+        int[] payloads = {1, 100, 1_000};
+
+        for (int threads : threadCounts(maxThreads)) {
+            for (int payload : payloads) {
+                // Q33: submit a Callable to a fixed pool and block on Future.get()
+                try (ExecutorService exec = Executors.newFixedThreadPool(threads)) {
+                    h.run("Q33.executorSubmit", params("payload", payload, "poolSize", threads), threads,
+                            t -> h.consume(t, exec.submit(() -> work(payload)).get()));
+                }
+
+                // Q38: one global monitor
+                h.run("Q38.synchronized", params("payload", payload), threads, t -> {
+                    synchronized (Q57_ConcurrencyBenchmarks.class) {
+                        counter++;
+                        h.consume(t, work(payload));
+                    }
+                });
+
+                // Q39: one global ReentrantLock
+                h.run("Q39.reentrantLock", params("payload", payload), threads, t -> {
+                    lock.lock();
+                    try {
+                        counter++;
+                        h.consume(t, work(payload));
+                    } finally {
+                        lock.unlock();
+                    }
+                });
+
+                // Q41: allOf over a small fan-out, then join each
+                h.run("Q41.allOf", params("payload", payload, "fanOut", 4), threads, t -> {
+                    CompletableFuture<?>[] fs = new CompletableFuture<?>[4];
+                    for (int i = 0; i < fs.length; i++) fs[i] = CompletableFuture.supplyAsync(() -> work(payload));
+                    CompletableFuture.allOf(fs).join();
+                    for (CompletableFuture<?> f : fs) h.consume(t, (Long) f.join());
+                });
+
+                // Q47: start + join a virtual thread per operation
+                h.run("Q47.virtualThread", params("payload", payload), threads,
+                        t -> Thread.startVirtualThread(() -> Blackhole.consume(work(payload))).join());
+
+                // Q56: semaphore-guarded section with 3 permits
+                Semaphore semaphore = new Semaphore(3);
+                h.run("Q56.semaphore", params("payload", payload, "permits", 3), threads, t -> {
+                    semaphore.acquire();
+                    try {
+                        h.consume(t, work(payload));
+                    } finally {
+                        semaphore.release();
+                    }
+                });
+            }
+        }
+        h.writeReport(out);
+    }
+}
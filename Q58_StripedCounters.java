@@ -0,0 +1,242 @@
+// Q58: Scalable counters - synchronized vs ReentrantLock vs CAS vs striped cells vs per-thread batching
+// Java example (requires Java 21 or later, uses Q57_ConcurrencyBenchmarks for the benchmark)
+//
+// Question: Q38 and Q39 funnel every increment through one monitor / one ReentrantLock. Why does that stop
+// scaling on many cores, and what are the alternatives?
+// Answer: every increment has to own the same cache line exclusively. A CAS on an AtomicLong removes the lock
+// but still bounces one line between cores. Striping the count over several padded cells (the LongAdder idea)
+// spreads the writes out, and per-thread batching only touches shared memory once every N increments.
+// The trade-off is that sum() becomes more expensive and, for the batched variant, slightly stale.
+//
+// Run:  java Q58_StripedCounters [report.json] [warmupMs] [measureMs] [maxThreads]
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+public class Q58_StripedCounters {
+
+    public interface Counter {
+        void add(long delta);
+
+        default void increment() { add(1); }
+
+        long sum();
+    }
+
+    // Q38 pattern: one monitor guards the value
+    public static final class SynchronizedCounter implements Counter {
+        private long value;
+
+        @Override public synchronized void add(long delta) { value += delta; }
+
+        @Override public synchronized long sum() { return value; }
+    }
+
+    // Q39 pattern: one ReentrantLock guards the value
+    public static final class LockCounter implements Counter {
+        private final ReentrantLock lock = new ReentrantLock();
+        private long value;
+
+        @Override
+        public void add(long delta) {
+            lock.lock();
+            try {
+                value += delta;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public long sum() {
+            lock.lock();
+            try {
+                return value;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    // Lock-free, but all threads still CAS the same cache line
+    public static final class AtomicCounter implements Counter {
+        private final AtomicLong value = new AtomicLong();
+
+        @Override public void add(long delta) { value.getAndAdd(delta); }
+
+        @Override public long sum() { return value.get(); }
+    }
+
+    // LongAdder-style striping: cells live 128 bytes apart in one long[] so two cells never share a cache line.
+    // A thread starts on the cell picked by its id hash and moves to another cell whenever its CAS fails. The move
+    // is remembered per thread (LongAdder keeps it in Thread.threadLocalRandomProbe), so two threads that collided
+    // once stay apart instead of colliding again on every add.
+    public static final class StripedCounter implements Counter {
+        private static final int STRIDE = 16; // 16 longs = 128 bytes, covers adjacent-line prefetching
+        private static final VarHandle CELLS = MethodHandles.arrayElementVarHandle(long[].class);
+        private static final ThreadLocal<int[]> PROBE =
+                ThreadLocal.withInitial(() -> new int[]{probe(Thread.currentThread().threadId())});
+        private final long[] cells;
+        private final int mask;
+
+        public StripedCounter() {
+            this(Runtime.getRuntime().availableProcessors());
+        }
+
+        public StripedCounter(int stripes) {
+            int n = Integer.highestOneBit(Math.max(1, stripes - 1)) << 1;
+            this.cells = new long[n * STRIDE];
+            this.mask = n - 1;
+        }
+
+        @Override
+        public void add(long delta) {
+            int[] probe = PROBE.get();
+            int h = probe[0];
+            while (true) {
+                int i = (h & mask) * STRIDE;
+                long v = (long) CELLS.getVolatile(cells, i);
+                if (CELLS.weakCompareAndSet(cells, i, v, v + delta)) return;
+                h = rehash(h); // contended: try another stripe (same xorshift move as LongAdder)
+                probe[0] = h;  // and start there next time
+            }
+        }
+
+        @Override
+        public long sum() {
+            long s = 0;
+            for (int i = 0; i < cells.length; i += STRIDE) s += (long) CELLS.getVolatile(cells, i);
+            return s;
+        }
+
+        private static int probe(long id) {
+            int h = (int) (id * 0x9E3779B97F4A7C15L >>> 32);
+            return h == 0 ? 1 : h;
+        }
+
+        private static int rehash(int h) {
+            h ^= h << 13;
+            h ^= h >>> 17;
+            h ^= h << 5;
+            return h;
+        }
+    }
+
+    // Each thread counts in a private cell and publishes to shared memory only every batchSize increments.
+    // Single writer per cell, so publication is a plain release store - no CAS, no lock.
+    // sum() may lag by up to (batchSize - 1) per active thread until that thread calls flush().
+    public static final class BatchedCounter implements Counter {
+        private static final VarHandle PUBLISHED;
+
+        static {
+            try {
+                PUBLISHED = MethodHandles.lookup().findVarHandle(Cell.class, "published", long.class);
+            } catch (ReflectiveOperationException e) {
+                throw new ExceptionInInitializerError(e);
+            }
+        }
+
+        @SuppressWarnings("unused")
+        static final class Cell {
+            long p01, p02, p03, p04, p05, p06, p07; // padding before
+            long published;
+            long pending;
+            long p11, p12, p13, p14, p15, p16, p17; // padding after
+        }
+
+        private final int batchSize;
+        private final List<Cell> cells = new ArrayList<>();
+        private final ThreadLocal<Cell> local = ThreadLocal.withInitial(this::register);
+
+        public BatchedCounter(int batchSize) {
+            if (batchSize < 1) throw new IllegalArgumentException("batchSize must be >= 1");
+            this.batchSize = batchSize;
+        }
+
+        private Cell register() {
+            Cell c = new Cell();
+            synchronized (cells) { cells.add(c); }
+            return c;
+        }
+
+        @Override
+        public void add(long delta) {
+            Cell c = local.get();
+            long p = c.pending + delta;
+            if (Math.abs(p) >= batchSize) {
+                PUBLISHED.setRelease(c, c.published + p);
+                p = 0;
+            }
+            c.pending = p;
+        }
+
+        // Publishes the calling thread's pending increments; call before the thread finishes its work.
+        public void flush() {
+            Cell c = local.get();
+            if (c.pending != 0) {
+                PUBLISHED.setRelease(c, c.published + c.pending);
+                c.pending = 0;
+            }
+        }
+
+        @Override
+        public long sum() {
+            long s = 0;
+            synchronized (cells) {
+                for (Cell c : cells) s += (long) PUBLISHED.getAcquire(c);
+            }
+            return s;
+        }
+    }
+
+    static Map<String, Supplier<Counter>> implementations() {
+        Map<String, Supplier<Counter>> m = new LinkedHashMap<>();
+        m.put("synchronized", SynchronizedCounter::new);
+        m.put("reentrantLock", LockCounter::new);
+        m.put("atomicCas", AtomicCounter::new);
+        m.put("striped", StripedCounter::new);
+        m.put("batched64", () -> new BatchedCounter(64));
+        return m;
+    }
+
+    public static void main(String[] args) throws Exception {
+        // Correctness: same workload as Q38/Q39, exact total expected after flush
+        for (Map.Entry<String, Supplier<Counter>> e : implementations().entrySet()) {
+            Counter c = e.getValue().get();
+            Runnable inc = () -> {
+                for (int i = 0; i < 1000; i++) c.increment();
+                if (c instanceof BatchedCounter b) b.flush();
+            };
+            Thread t1 = new Thread(inc), t2 = new Thread(inc);
+            t1.start(); t2.start();
+            t1.join(); t2.join();
+            System.out.println(e.getKey() + " counter: " + c.sum()); // 2000
+        }
+
+        // Contention benchmark: pure increments, then a mixed workload with 1% reads of sum()
+        String out = args.length > 0 ? args[0] : null;
+        long warmup = args.length > 1 ? Long.parseLong(args[1]) : 200;
+        long measure = args.length > 2 ? Long.parseLong(args[2]) : 500;
+        int maxThreads = args.length > 3 ? Integer.parseInt(args[3])
+                : Math.max(2, Runtime.getRuntime().availableProcessors());
+        Q57_ConcurrencyBenchmarks.Harness h = new Q57_ConcurrencyBenchmarks.Harness(warmup, measure);
+        for (int threads : Q57_ConcurrencyBenchmarks.threadCounts(maxThreads)) {
+            for (Map.Entry<String, Supplier<Counter>> e : implementations().entrySet()) {
+                Counter c = e.getValue().get();
+                h.run("Q58.increment", Q57_ConcurrencyBenchmarks.params("counter", e.getKey()), threads,
+                        t -> c.increment());
+                Counter mixed = e.getValue().get();
+                long[] n = new long[threads * 16];
+                h.run("Q58.increment99read1", Q57_ConcurrencyBenchmarks.params("counter", e.getKey()), threads, t -> {
+                    if (++n[t * 16] % 100 == 0) h.consume(t, mixed.sum());
+                    else mixed.increment();
+                });
+            }
+        }
+        h.writeReport(out);
+    }
+}
@@ -0,0 +1,360 @@
+// Q59: Detecting and breaking deadlocks (builds on Q37_DeadlockDemo)
+// Java example (requires Java 9 or later)
+//
+// Question: Q37 can hang forever and the only symptom is a missing log line. How do you find out at runtime
+// that threads are deadlocked, and how can code avoid or break a deadlock?
+// Answer:
+//  - Detection: ThreadMXBean.findDeadlockedThreads() sees cycles over both monitors (synchronized) and
+//    ownable synchronizers (ReentrantLock). Polling it on a low-frequency timer costs nothing between samples.
+//  - Prevention: always acquire locks in one global order. OrderedLock records "held A, then took B" edges and
+//    reports every new edge that closes a cycle (B then A, or A->B->C->A across threads) before it ever
+//    deadlocks, with the stack trace that first created each edge of the cycle. Only ReentrantLock-based code can be
+//    instrumented this way; plain synchronized blocks are covered by the watchdog.
+//  - Recovery: acquire with tryLock(timeout) and back off (release everything, retry) instead of waiting forever.
+
+import java.lang.ref.Cleaner;
+import java.lang.management.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+public class Q59_DeadlockWatchdog {
+
+    // Periodically samples the JVM for deadlocked threads and reports each distinct cycle once.
+    public static final class Watchdog implements AutoCloseable {
+        private final ThreadMXBean mx = ManagementFactory.getThreadMXBean();
+        private final ScheduledExecutorService timer;
+        private final Consumer<String> reporter;
+        private final Set<Set<Long>> reported = ConcurrentHashMap.newKeySet();
+
+        public Watchdog(long interval, TimeUnit unit, Consumer<String> reporter) {
+            this.reporter = reporter;
+            this.timer = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "deadlock-watchdog");
+                t.setDaemon(true); // must never keep the JVM alive
+                return t;
+            });
+            timer.scheduleWithFixedDelay(this::check, interval, interval, unit);
+        }
+
+        // Returns true if a deadlock was found during this call.
+        public boolean check() {
+            long[] ids = mx.findDeadlockedThreads(); // null when there is none: no allocation on the idle path
+            if (ids == null) return false;
+            Set<Long> key = new HashSet<>();
+            for (long id : ids) key.add(id);
+            if (reported.add(key)) reporter.accept(describe(mx.getThreadInfo(ids, true, true)));
+            return true;
+        }
+
+        static String describe(ThreadInfo[] infos) {
+            StringBuilder sb = new StringBuilder("DEADLOCK detected between ").append(infos.length).append(" threads:\n");
+            for (ThreadInfo ti : infos) {
+                if (ti == null) continue;
+                sb.append("  \"").append(ti.getThreadName()).append("\" waits for ").append(ti.getLockName())
+                  .append(" held by \"").append(ti.getLockOwnerName()).append("\"\n");
+            }
+            for (ThreadInfo ti : infos) {
+                if (ti == null) continue;
+                sb.append("  --- ").append(ti.getThreadName()).append(" (").append(ti.getThreadState()).append(")\n");
+                for (StackTraceElement e : ti.getStackTrace()) sb.append("      at ").append(e).append('\n');
+            }
+            return sb.toString();
+        }
+
+        @Override
+        public void close() {
+            timer.shutdownNow();
+        }
+    }
+
+    public static final class LockTimeoutException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        LockTimeoutException(String message) {
+            super(message, null, false, false); // no stack trace: thrown on a retry path
+        }
+    }
+
+    // ReentrantLock wrapper that tracks acquisition order. Per-acquire cost is an array push/pop on a per-thread
+    // stack allocated once per thread plus a bit test in a fixed-size order matrix; nothing is allocated unless
+    // a new order edge is seen for the first time.
+    // The matrix has MAX_LOCKS slots. A slot is freed by close() or, failing that, once the lock has been garbage
+    // collected, and its edges are cleared before reuse. If all slots are taken by live locks, a new lock still
+    // works but is not order-checked (reported once), so creating many locks can never break the application.
+    public static final class OrderedLock {
+        static final int MAX_LOCKS = 256;
+        private static final String[] NAMES = new String[MAX_LOCKS];
+        // edges[a * WORDS + b / 64] has bit (b % 64) set once some thread took b while holding a
+        private static final int WORDS = MAX_LOCKS / 64;
+        private static final AtomicLongArray edges = new AtomicLongArray(MAX_LOCKS * WORDS);
+        // where each edge was first taken, keyed a * MAX_LOCKS + b; written only on the rare new-edge path
+        private static final Map<Integer, Throwable> edgeSites = new ConcurrentHashMap<>();
+        private static final BitSet usedIds = new BitSet(MAX_LOCKS); // guarded by itself
+        private static final Cleaner CLEANER = Cleaner.create();
+        private static volatile boolean exhaustionReported;
+        private static volatile Consumer<String> inversionReporter = System.err::println;
+
+        private static final class Held {
+            int[] ids = new int[8];
+            int depth;
+        }
+
+        private static final ThreadLocal<Held> HELD = ThreadLocal.withInitial(Held::new);
+
+        private final ReentrantLock lock = new ReentrantLock();
+        private final String name;
+        private final int id; // -1: untracked, all slots were in use
+        private final Cleaner.Cleanable slot;
+        private final long timeoutNanos; // 0 = wait forever (plain lock())
+
+        public OrderedLock(String name) {
+            this(name, 0, TimeUnit.MILLISECONDS);
+        }
+
+        public OrderedLock(String name, long timeout, TimeUnit unit) {
+            this.name = name;
+            this.id = allocateId(name);
+            this.slot = id < 0 ? null : CLEANER.register(this, new ReleaseId(id)); // must not capture `this`
+            this.timeoutNanos = unit.toNanos(timeout);
+        }
+
+        // Frees this lock's slot in the order matrix; call it when the lock is discarded. The lock itself keeps
+        // working, without order checks.
+        public void close() {
+            if (slot != null) slot.clean(); // runs ReleaseId at most once
+        }
+
+        private static int allocateId(String name) {
+            synchronized (usedIds) {
+                int id = usedIds.nextClearBit(0);
+                if (id < MAX_LOCKS) {
+                    usedIds.set(id);
+                    NAMES[id] = name;
+                    return id;
+                }
+            }
+            if (!exhaustionReported) {
+                exhaustionReported = true;
+                inversionReporter.accept("more than " + MAX_LOCKS + " live OrderedLocks: lock order is not checked for \""
+                        + name + "\" (reported once)");
+            }
+            return -1;
+        }
+
+        private static final class ReleaseId implements Runnable {
+            private final int id;
+
+            ReleaseId(int id) { this.id = id; }
+
+            @Override
+            public void run() {
+                for (int w = 0; w < WORDS; w++) edges.set(id * WORDS + w, 0);       // edges from id
+                long bit = 1L << (id % 64);
+                for (int a = 0; a < MAX_LOCKS; a++) edges.getAndAccumulate(a * WORDS + id / 64, ~bit, (x, y) -> x & y); // edges to id
+                edgeSites.keySet().removeIf(k -> k / MAX_LOCKS == id || k % MAX_LOCKS == id);
+                synchronized (usedIds) {
+                    NAMES[id] = null;
+                    usedIds.clear(id);
+                }
+            }
+        }
+
+        public static void onInversion(Consumer<String> reporter) {
+            inversionReporter = reporter;
+        }
+
+        public void lock() {
+            if (id < 0) {
+                lockUntracked();
+                return;
+            }
+            Held held = HELD.get();
+            recordOrder(held);
+            if (timeoutNanos == 0) {
+                lock.lock();
+            } else {
+                lockUntracked();
+            }
+            if (held.depth == held.ids.length) held.ids = Arrays.copyOf(held.ids, held.depth * 2);
+            held.ids[held.depth++] = id;
+        }
+
+        private void lockUntracked() {
+            if (timeoutNanos == 0) {
+                lock.lock();
+                return;
+            }
+            boolean ok;
+            try {
+                ok = lock.tryLock(timeoutNanos, TimeUnit.NANOSECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new LockTimeoutException("interrupted while waiting for " + name);
+            }
+            if (!ok) throw new LockTimeoutException("timed out waiting for " + name + ", back off and retry");
+        }
+
+        public void unlock() {
+            if (id < 0) {
+                lock.unlock();
+                return;
+            }
+            Held held = HELD.get();
+            for (int i = held.depth - 1; i >= 0; i--) { // usually the top of the stack
+                if (held.ids[i] == id) {
+                    System.arraycopy(held.ids, i + 1, held.ids, i, held.depth - i - 1);
+                    held.depth--;
+                    break;
+                }
+            }
+            lock.unlock();
+        }
+
+        private void recordOrder(Held held) {
+            for (int i = 0; i < held.depth; i++) {
+                int a = held.ids[i];
+                if (a == id) continue; // reentrant acquire
+                int word = a * WORDS + id / 64;
+                long bit = 1L << (id % 64);
+                if ((edges.get(word) & bit) != 0) continue; // known edge: the common, allocation-free path
+                edgeSites.putIfAbsent(a * MAX_LOCKS + id, new Throwable("thread " + Thread.currentThread().getName()));
+                long before = edges.getAndAccumulate(word, bit, (x, y) -> x | y);
+                if ((before & bit) != 0) continue; // another thread added it first and checks for the cycle
+                int[] path = pathBetween(id, a);
+                if (path != null) inversionReporter.accept(describeCycle(a, path));
+            }
+        }
+
+        // Breadth-first search over the order matrix; returns the locks from `from` to `to` (inclusive) or null
+        private static int[] pathBetween(int from, int to) {
+            int[] parent = new int[MAX_LOCKS];
+            Arrays.fill(parent, -1);
+            parent[from] = from;
+            ArrayDeque<Integer> queue = new ArrayDeque<>();
+            queue.add(from);
+            while (!queue.isEmpty()) {
+                int x = queue.poll();
+                if (x == to) {
+                    ArrayDeque<Integer> path = new ArrayDeque<>();
+                    for (int v = to; v != from; v = parent[v]) path.addFirst(v);
+                    path.addFirst(from);
+                    return path.stream().mapToInt(Integer::intValue).toArray();
+                }
+                for (int w = 0; w < WORDS; w++) {
+                    for (long bits = edges.get(x * WORDS + w); bits != 0; bits &= bits - 1) {
+                        int y = w * 64 + Long.numberOfTrailingZeros(bits);
+                        if (parent[y] < 0) {
+                            parent[y] = x;
+                            queue.add(y);
+                        }
+                    }
+                }
+            }
+            return null;
+        }
+
+        // `held` -> path[0] is the new edge; path leads back to `held`
+        private static String describeCycle(int held, int[] path) {
+            int[] cycle = new int[path.length + 1];
+            cycle[0] = held;
+            System.arraycopy(path, 0, cycle, 1, path.length);
+            StringBuilder sb = new StringBuilder("LOCK ORDER CYCLE: ");
+            for (int i = 0; i < cycle.length; i++) sb.append(i > 0 ? " -> " : "").append(NAMES[cycle[i]]);
+            sb.append(" (closed by thread ").append(Thread.currentThread().getName()).append(")\n");
+            for (int i = 0; i + 1 < cycle.length; i++) {
+                sb.append("  --- ").append(NAMES[cycle[i + 1]]).append(" acquired while holding ").append(NAMES[cycle[i]]);
+                Throwable site = edgeSites.get(cycle[i] * MAX_LOCKS + cycle[i + 1]);
+                if (site == null) {
+                    sb.append(" (site no longer recorded)\n");
+                    continue;
+                }
+                sb.append(", first in ").append(site.getMessage()).append('\n');
+                for (StackTraceElement e : site.getStackTrace()) {
+                    if (!e.getClassName().equals(OrderedLock.class.getName())) sb.append("      at ").append(e).append('\n');
+                }
+            }
+            return sb.toString();
+        }
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        // 1) Q37 with monitors: the watchdog reports the cycle with stack traces; threads are daemons so we can exit
+        try (Watchdog watchdog = new Watchdog(100, TimeUnit.MILLISECONDS, System.out::println)) {
+            final Object a = new Object();
+            final Object b = new Object();
+            Thread t1 = new Thread(() -> {
+                synchronized (a) { sleep(50); synchronized (b) { System.out.println("t1 acquired both"); } }
+            }, "t1");
+            Thread t2 = new Thread(() -> {
+                synchronized (b) { sleep(50); synchronized (a) { System.out.println("t2 acquired both"); } }
+            }, "t2");
+            t1.setDaemon(true); t2.setDaemon(true);
+            t1.start(); t2.start();
+            t1.join(500); t2.join(500);
+            System.out.println("Deadlock reported by watchdog: " + watchdog.check());
+        }
+
+        // 2) Same shape with OrderedLock + tryLock timeout: inversion is reported, the loser backs off and retries
+        OrderedLock a = new OrderedLock("A", 100, TimeUnit.MILLISECONDS);
+        OrderedLock b = new OrderedLock("B", 100, TimeUnit.MILLISECONDS);
+        Thread t1 = new Thread(() -> withBoth(a, b, "t1"), "t1");
+        Thread t2 = new Thread(() -> withBoth(b, a, "t2"), "t2");
+        t1.start(); t2.start();
+        t1.join(); t2.join();
+        System.out.println("Both threads finished without hanging.");
+
+        // 3) A longer cycle never deadlocks in a test run like this one (each step runs on its own, one after the
+        //    other), yet in production the three threads can each hold one lock and wait for the next
+        OrderedLock x = new OrderedLock("X"), y = new OrderedLock("Y"), z = new OrderedLock("Z");
+        OrderedLock[][] steps = {{x, y}, {y, z}, {z, x}};
+        for (OrderedLock[] step : steps) {
+            Thread t = new Thread(() -> {
+                step[0].lock();
+                try {
+                    step[1].lock();
+                    step[1].unlock();
+                } finally {
+                    step[0].unlock();
+                }
+            }, "takes-" + Arrays.toString(Arrays.stream(step).map(l -> l.name).toArray()));
+            t.start();
+            t.join();
+        }
+        x.close(); y.close(); z.close();
+
+        // 4) Short-lived locks return their slot, so order checking can stay on in long-running services
+        for (int i = 0; i < 10_000; i++) {
+            OrderedLock tmp = new OrderedLock("request-" + i);
+            tmp.lock();
+            tmp.unlock();
+            tmp.close(); // without close() the slot is reclaimed only after the lock is garbage collected
+        }
+        System.out.println("Created 10,000 short-lived OrderedLocks, max " + OrderedLock.MAX_LOCKS + " live at a time.");
+    }
+
+    static void withBoth(OrderedLock first, OrderedLock second, String name) {
+        for (int attempt = 1; ; attempt++) {
+            first.lock();
+            try {
+                sleep(50);
+                second.lock();
+                try {
+                    System.out.println(name + " acquired both (attempt " + attempt + ")");
+                    return;
+                } finally {
+                    second.unlock();
+                }
+            } catch (LockTimeoutException e) {
+                System.out.println(name + ": " + e.getMessage());
+            } finally {
+                first.unlock();
+            }
+            sleep(ThreadLocalRandom.current().nextInt(10, 60)); // randomized back-off breaks the symmetry
+        }
+    }
+
+    static void sleep(long ms) { try { Thread.sleep(ms); } catch (InterruptedException e) { Thread.currentThread().interrupt(); } }
+}
@@ -0,0 +1,256 @@
+// Q60: Adaptive concurrency limit instead of a fixed Semaphore (builds on Q56_SemaphoreExample)
+// Java example (requires Java 21 or later, uses Q57_ConcurrencyBenchmarks.Histogram for the benchmark)
+//
+// Question: Q56 hard-codes new Semaphore(3). How many permits should a client allow towards a downstream
+// service whose capacity changes over time?
+// Answer: let the limit follow measured latency (AIMD, as TCP congestion control does). While latency stays
+// close to the best latency seen so far, add one permit per "window" of successful calls. When latency rises
+// above tolerance x minLatency (the downstream is queueing), cut the limit multiplicatively. Waiters are
+// queued up to a bound and time out, so overload turns into fast rejections instead of unbounded tail latency.
+//
+// Run:  java Q60_AdaptiveConcurrencyLimiter [warmupMs] [measureMs] [clientThreads]
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import java.util.concurrent.locks.*;
+
+public class Q60_AdaptiveConcurrencyLimiter {
+
+    public static final class AdaptiveLimiter {
+        private final int minLimit, maxLimit, maxQueue;
+        private final double tolerance, backoff;
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Condition permitFreed = lock.newCondition();
+
+        // guarded by lock
+        private double limit;
+        private int inFlight, queued;
+        private long minLatencyNanos = Long.MAX_VALUE;
+        private long minLatencyResetAt;
+        private long smoothedNanos, lastDecreaseAt;
+        private final AtomicLong rejected = new AtomicLong();
+
+        public AdaptiveLimiter(int initialLimit, int minLimit, int maxLimit, int maxQueue) {
+            this(initialLimit, minLimit, maxLimit, maxQueue, 2.0, 0.9);
+        }
+
+        public AdaptiveLimiter(int initialLimit, int minLimit, int maxLimit, int maxQueue,
+                               double tolerance, double backoff) {
+            if (minLimit < 1 || initialLimit < minLimit || maxLimit < initialLimit) {
+                throw new IllegalArgumentException("require 1 <= minLimit <= initialLimit <= maxLimit");
+            }
+            this.limit = initialLimit;
+            this.minLimit = minLimit;
+            this.maxLimit = maxLimit;
+            this.maxQueue = maxQueue;
+            this.tolerance = tolerance;
+            this.backoff = backoff;
+        }
+
+        // A granted permit; release it exactly once, in a finally block. It carries the start time of the call.
+        public final class Permit {
+            private final long startNanos = System.nanoTime();
+            private boolean released;
+
+            private Permit() { }
+
+            public void release() { release(false); }
+
+            // Returns the permit and feeds the observed latency into the limit. Pass dropped=true for timeouts/errors.
+            public void release(boolean dropped) {
+                if (released) throw new IllegalStateException("permit already released");
+                released = true;
+                onRelease(startNanos, dropped);
+            }
+        }
+
+        // Returns a permit, or null if the call was rejected (queue full or timed out).
+        public Permit acquire(long timeout, TimeUnit unit) throws InterruptedException {
+            long remaining = unit.toNanos(timeout);
+            lock.lockInterruptibly();
+            try {
+                if (inFlight >= (int) limit) {
+                    if (queued >= maxQueue) {
+                        rejected.incrementAndGet();
+                        return null;
+                    }
+                    queued++;
+                    try {
+                        while (inFlight >= (int) limit) {
+                            if (remaining <= 0) {
+                                rejected.incrementAndGet();
+                                return null;
+                            }
+                            remaining = permitFreed.awaitNanos(remaining);
+                        }
+                    } finally {
+                        queued--;
+                    }
+                }
+                inFlight++;
+            } finally {
+                lock.unlock();
+            }
+            return new Permit();
+        }
+
+        private void onRelease(long startNanos, boolean dropped) {
+            long now = System.nanoTime();
+            long latency = now - startNanos;
+            lock.lock();
+            try {
+                inFlight--;
+                if (now - minLatencyResetAt > TimeUnit.SECONDS.toNanos(10)) {
+                    minLatencyNanos = Long.MAX_VALUE; // forget stale minimum so the limiter can re-probe
+                    minLatencyResetAt = now;
+                }
+                if (!dropped) {
+                    if (latency < minLatencyNanos) minLatencyNanos = latency;
+                    smoothedNanos = smoothedNanos == 0 ? latency : (long) (smoothedNanos * 0.9 + latency * 0.1);
+                }
+                if (dropped || smoothedNanos > tolerance * minLatencyNanos) {
+                    if (now - lastDecreaseAt > smoothedNanos) { // at most one decrease per round trip
+                        limit = Math.max(minLimit, limit * backoff);
+                        lastDecreaseAt = now;
+                    }
+                } else if (inFlight + 1 >= (int) limit / 2) {
+                    limit = Math.min(maxLimit, limit + 1.0 / limit); // roughly +1 per limit-sized window
+                }
+                if (inFlight < (int) limit) permitFreed.signal();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        // Gauges for export to metrics systems
+        public int limit() { lock.lock(); try { return (int) limit; } finally { lock.unlock(); } }
+
+        public int inFlight() { lock.lock(); try { return inFlight; } finally { lock.unlock(); } }
+
+        public int queued() { lock.lock(); try { return queued; } finally { lock.unlock(); } }
+
+        public long rejected() { return rejected.get(); }
+    }
+
+    // Downstream that serves `capacity` calls in parallel; beyond that, latency grows with the backlog.
+    static final class SimulatedDownstream {
+        private final int capacity;
+        private final long baseNanos;
+        private final AtomicInteger active = new AtomicInteger();
+
+        SimulatedDownstream(int capacity, long baseMicros) {
+            this.capacity = capacity;
+            this.baseNanos = TimeUnit.MICROSECONDS.toNanos(baseMicros);
+        }
+
+        void call() {
+            int c = active.incrementAndGet();
+            try {
+                LockSupport.parkNanos(baseNanos * Math.max(1, (c + capacity - 1) / capacity));
+            } finally {
+                active.decrementAndGet();
+            }
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        // Q56 scenario with the limiter: 6 threads, limit starts at 3; release() always runs in finally
+        AdaptiveLimiter demo = new AdaptiveLimiter(3, 1, 10, 10);
+        Runnable task = () -> {
+            String threadName = Thread.currentThread().getName();
+            try {
+                AdaptiveLimiter.Permit permit = demo.acquire(5, TimeUnit.SECONDS);
+                if (permit == null) {
+                    System.out.println(threadName + " rejected.");
+                    return;
+                }
+                try {
+                    System.out.println(threadName + " acquired a permit (limit=" + demo.limit() + ").");
+                    Thread.sleep(200);
+                } finally {
+                    permit.release();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 6; i++) threads.add(Thread.ofPlatform().name("Thread-" + i).start(task));
+        for (Thread t : threads) t.join();
+
+        // Benchmark: many clients against a downstream with capacity 8, fixed Semaphore(64) vs adaptive limiter
+        long warmup = args.length > 0 ? Long.parseLong(args[0]) : 300;
+        long measure = args.length > 1 ? Long.parseLong(args[1]) : 1000;
+        int clients = args.length > 2 ? Integer.parseInt(args[2]) : 64;
+        SimulatedDownstream downstream = new SimulatedDownstream(8, 500);
+
+        Semaphore fixed = new Semaphore(64);
+        runClients("Q60.fixedSemaphore(64)", clients, warmup, measure, () -> {
+            if (!fixed.tryAcquire(50, TimeUnit.MILLISECONDS)) return false;
+            try {
+                downstream.call();
+            } finally {
+                fixed.release();
+            }
+            return true;
+        });
+
+        AdaptiveLimiter adaptive = new AdaptiveLimiter(8, 1, 64, 16);
+        runClients("Q60.adaptiveLimiter", clients, warmup, measure, () -> {
+            AdaptiveLimiter.Permit permit = adaptive.acquire(50, TimeUnit.MILLISECONDS);
+            if (permit == null) return false;
+            try {
+                downstream.call();
+            } finally {
+                permit.release();
+            }
+            return true;
+        });
+        System.out.println("  adaptive final limit=" + adaptive.limit() + " inFlight=" + adaptive.inFlight() + " queued=" + adaptive.queued());
+    }
+
+    // One client attempt; returns false if the limiter rejected it
+    @FunctionalInterface
+    interface Call {
+        boolean attempt() throws Exception;
+    }
+
+    // Like Q57's Harness, but only served calls (including their wait for a permit) are latency samples.
+    // Rejections are counted separately, and the client's back-off after one is not timed at all.
+    static void runClients(String name, int clients, long warmupMs, long measureMs, Call call) throws InterruptedException {
+        Q57_ConcurrencyBenchmarks.Histogram[] served = new Q57_ConcurrencyBenchmarks.Histogram[clients];
+        long[] rejected = new long[clients];
+        long warmupEnd = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(warmupMs);
+        long measureEnd = warmupEnd + TimeUnit.MILLISECONDS.toNanos(measureMs);
+        List<Thread> threads = new ArrayList<>();
+        for (int c = 0; c < clients; c++) {
+            int idx = c;
+            served[c] = new Q57_ConcurrencyBenchmarks.Histogram();
+            threads.add(Thread.ofPlatform().name(name + "-" + c).start(() -> {
+                try {
+                    long t0;
+                    while ((t0 = System.nanoTime()) < measureEnd) {
+                        boolean ok = call.attempt();
+                        if (t0 >= warmupEnd) {
+                            if (ok) served[idx].record(System.nanoTime() - t0); else rejected[idx]++;
+                        }
+                        if (!ok) Thread.sleep(1); // client-side back-off before retrying
+                    }
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            }));
+        }
+        for (Thread t : threads) t.join();
+        Q57_ConcurrencyBenchmarks.Histogram all = new Q57_ConcurrencyBenchmarks.Histogram();
+        long rejections = 0;
+        for (int c = 0; c < clients; c++) {
+            all.merge(served[c]);
+            rejections += rejected[c];
+        }
+        double seconds = measureMs / 1e3;
+        System.out.printf(Locale.ROOT, "%-24s clients=%-3d served %,9.0f calls/s  p50=%,9d ns  p99=%,11d ns | rejected %,9.0f /s%n",
+                name, clients, all.count() / seconds, all.percentile(50), all.percentile(99), rejections / seconds);
+    }
+}
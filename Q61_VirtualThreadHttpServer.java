@@ -0,0 +1,149 @@
+// Q61: HTTP server executor modes - inline dispatcher vs platform pool vs virtual threads (builds on Q43)
+// Java example (requires Java 21 or later, uses Q57_ConcurrencyBenchmarks.Histogram for latency percentiles)
+//
+// Question: Q43 calls server.setExecutor(null). What does that mean for throughput, and what should you use?
+// Answer: with a null executor every exchange runs on the single dispatcher thread, so one slow (blocking)
+// handler stalls all connections. A bounded platform pool allows N requests in parallel; a virtual thread per
+// request lets blocking handlers scale to thousands of concurrent requests at almost no cost per thread.
+// Independent of the executor: encode constant responses once, and keep connections alive between requests.
+//
+// Run:  java Q61_VirtualThreadHttpServer [durationMs] [clients] [handlerDelayMs]
+//       java Q61_VirtualThreadHttpServer serve VIRTUAL 8080     (just run a server in the given mode)
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class Q61_VirtualThreadHttpServer {
+
+    public enum Mode { INLINE, PLATFORM_POOL, VIRTUAL }
+
+    // Encoded once, shared by every request (Q43 calls getBytes() twice per request)
+    private static final byte[] RESPONSE = "Hello from Java Simple HTTP Server!".getBytes(StandardCharsets.UTF_8);
+
+    public static final class Server implements AutoCloseable {
+        private final HttpServer server;
+        private final ExecutorService executor; // null in INLINE mode
+
+        public Server(Mode mode, int port, int poolSize, long handlerDelayMillis) throws IOException {
+            server = HttpServer.create(new InetSocketAddress("localhost", port), 1024);
+            server.createContext("/", exchange -> handle(exchange, handlerDelayMillis));
+            executor = switch (mode) {
+                case INLINE -> null; // run on the dispatcher thread, as Q43 does
+                case PLATFORM_POOL -> Executors.newFixedThreadPool(poolSize);
+                case VIRTUAL -> Executors.newVirtualThreadPerTaskExecutor();
+            };
+            server.setExecutor(executor);
+            server.start();
+        }
+
+        public int port() { return server.getAddress().getPort(); }
+
+        private static void handle(HttpExchange exchange, long delayMillis) throws IOException {
+            try (InputStream in = exchange.getRequestBody()) {
+                in.transferTo(OutputStream.nullOutputStream()); // drain so the connection can be reused
+            }
+            if (delayMillis > 0) {
+                try {
+                    Thread.sleep(delayMillis); // simulated blocking call (database, downstream HTTP...)
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+            exchange.sendResponseHeaders(200, RESPONSE.length); // fixed length keeps the connection alive
+            try (OutputStream os = exchange.getResponseBody()) {
+                os.write(RESPONSE);
+            }
+        }
+
+        @Override
+        public void close() {
+            server.stop(0);
+            if (executor != null) executor.shutdownNow();
+        }
+    }
+
+    // Keep-alive tuning for the JDK server and client; must run before the first HttpServer / HttpClient is created.
+    static void tuneKeepAlive() {
+        System.setProperty("sun.net.httpserver.idleInterval", System.getProperty("sun.net.httpserver.idleInterval", "30"));
+        System.setProperty("sun.net.httpserver.maxIdleConnections",
+                System.getProperty("sun.net.httpserver.maxIdleConnections", "1000"));
+        System.setProperty("jdk.httpclient.keepalive.timeout", System.getProperty("jdk.httpclient.keepalive.timeout", "30"));
+        System.setProperty("jdk.httpclient.connectionPoolSize", System.getProperty("jdk.httpclient.connectionPoolSize", "0"));
+    }
+
+    // Closed-loop load generator: each client sends the next request as soon as the previous one completes.
+    static void load(Mode mode, int port, int clients, long durationMillis) throws Exception {
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .build();
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/"))
+                .timeout(Duration.ofSeconds(30)).GET().build();
+
+        Q57_ConcurrencyBenchmarks.Histogram[] histograms = new Q57_ConcurrencyBenchmarks.Histogram[clients];
+        AtomicLong errors = new AtomicLong();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(durationMillis);
+        try (ExecutorService drivers = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int c = 0; c < clients; c++) {
+                Q57_ConcurrencyBenchmarks.Histogram h = histograms[c] = new Q57_ConcurrencyBenchmarks.Histogram();
+                drivers.submit(() -> {
+                    long start;
+                    while ((start = System.nanoTime()) < deadline) {
+                        try {
+                            HttpResponse<byte[]> r = client.send(request, HttpResponse.BodyHandlers.ofByteArray());
+                            if (r.statusCode() != 200) errors.incrementAndGet();
+                        } catch (IOException e) {
+                            errors.incrementAndGet();
+                        }
+                        h.record(System.nanoTime() - start);
+                    }
+                    return null;
+                });
+            }
+        }
+        Q57_ConcurrencyBenchmarks.Histogram all = new Q57_ConcurrencyBenchmarks.Histogram();
+        for (Q57_ConcurrencyBenchmarks.Histogram h : histograms) all.merge(h);
+        System.out.printf(Locale.ROOT, "%-14s clients=%-4d %,10.0f req/s  p50=%,7d us  p99=%,8d us  p99.9=%,8d us  errors=%d%n",
+                mode, clients, all.count() * 1000.0 / durationMillis, all.percentile(50) / 1000,
+                all.percentile(99) / 1000, all.percentile(99.9) / 1000, errors.get());
+    }
+
+    public static void main(String[] args) throws Exception {
+        tuneKeepAlive();
+        if (args.length > 0 && args[0].equals("serve")) {
+            Mode mode = args.length > 1 ? Mode.valueOf(args[1]) : Mode.VIRTUAL;
+            int port = args.length > 2 ? Integer.parseInt(args[2]) : 8080;
+            Server server = new Server(mode, port, 2 * Runtime.getRuntime().availableProcessors(), 0);
+            System.out.println("Server (" + mode + ") started on http://localhost:" + server.port() + "/");
+            System.out.println("Press Ctrl+C to stop.");
+            return;
+        }
+
+        long duration = args.length > 0 ? Long.parseLong(args[0]) : 2000;
+        int clients = args.length > 1 ? Integer.parseInt(args[1]) : 64;
+        long delay = args.length > 2 ? Long.parseLong(args[2]) : 5;
+        int poolSize = 2 * Runtime.getRuntime().availableProcessors();
+        System.out.println("=== " + clients + " clients, handler blocks " + delay + " ms, pool size " + poolSize + " ===");
+        for (Mode mode : Mode.values()) {
+            try (Server server = new Server(mode, 0, poolSize, delay)) {
+                load(mode, server.port(), clients, duration);
+            }
+        }
+    }
+}
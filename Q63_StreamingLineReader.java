@@ -0,0 +1,185 @@
+// Q63: Bulk reads with a reusable direct ByteBuffer and incremental UTF-8 decoding (builds on Q16)
+// Java example (requires Java 11 or later)
+//
+// Question: Q16 reads an InputStream with is.read() one byte at a time and casts each byte to char.
+// Why is that slow (and wrong for non-ASCII text), and how should a large file be read line by line?
+// Answer: every read() is a method call (and for an unbuffered FileInputStream a system call) per byte,
+// and (char) b breaks multi-byte UTF-8 characters. Read big chunks into one reusable buffer, decode them with
+// a CharsetDecoder that keeps partial characters between chunks, and hand each line to a callback as a
+// CharSequence backed by a reused buffer, so no String is allocated per line.
+// The reader is AutoCloseable, so it keeps Q16's try-with-resources shape.
+//
+// Run:  java Q63_StreamingLineReader [fileSizeMB]      (e.g. 1024 for a 1 GB input)
+
+import java.io.*;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.*;
+import java.nio.charset.*;
+import java.nio.file.*;
+import java.util.Locale;
+
+public class Q63_StreamingLineReader {
+
+    @FunctionalInterface
+    public interface LineHandler {
+        // `line` is only valid during this call; copy it (toString()) if it must be kept.
+        void onLine(CharSequence line) throws IOException;
+    }
+
+    public static final class StreamingReader implements AutoCloseable {
+        private final ReadableByteChannel channel;
+        private final CharsetDecoder decoder;
+        private final ByteBuffer bytes;
+        private final CharBuffer chars;
+        private final CharBuffer view; // reusable window over `chars` handed to the callback
+        private final StringBuilder record = new StringBuilder(256);
+        private final char delimiter;
+
+        public StreamingReader(ReadableByteChannel channel, Charset charset, int bufferSize, char delimiter) {
+            this.channel = channel;
+            this.decoder = charset.newDecoder()
+                    .onMalformedInput(CodingErrorAction.REPLACE)
+                    .onUnmappableCharacter(CodingErrorAction.REPLACE);
+            this.bytes = ByteBuffer.allocateDirect(bufferSize);
+            this.chars = CharBuffer.allocate(bufferSize);
+            this.view = CharBuffer.wrap(chars.array());
+            this.delimiter = delimiter;
+        }
+
+        public StreamingReader(InputStream in) {
+            this(Channels.newChannel(in), StandardCharsets.UTF_8, 64 * 1024, '\n');
+        }
+
+        public static StreamingReader open(Path file) throws IOException {
+            return new StreamingReader(FileChannel.open(file, StandardOpenOption.READ), StandardCharsets.UTF_8, 64 * 1024, '\n');
+        }
+
+        // Calls handler once per record; a trailing '\r' before a '\n' delimiter is dropped. Returns the record count.
+        public long forEachLine(LineHandler handler) throws IOException {
+            long count = 0;
+            boolean eof = false;
+            while (!eof) {
+                eof = channel.read(bytes) < 0;
+                bytes.flip();
+                decoder.decode(bytes, chars, eof); // leaves an incomplete multi-byte sequence in `bytes`
+                if (eof) decoder.flush(chars);
+                bytes.compact();
+                chars.flip();
+                count += split(handler);
+                chars.clear();
+            }
+            if (record.length() > 0) {
+                emit(handler);
+                count++;
+            }
+            decoder.reset();
+            return count;
+        }
+
+        private long split(LineHandler handler) throws IOException {
+            long count = 0;
+            char[] a = chars.array();
+            int start = chars.position(), end = chars.limit();
+            for (int i = start; i < end; i++) {
+                if (a[i] == delimiter) {
+                    if (record.length() == 0) {
+                        emit(handler, start, i); // whole record inside this chunk: no copy at all
+                    } else {
+                        record.append(a, start, i - start); // record spans chunks: stitch it together
+                        emit(handler);
+                    }
+                    count++;
+                    start = i + 1;
+                }
+            }
+            record.append(a, start, end - start);
+            return count;
+        }
+
+        private void emit(LineHandler handler, int from, int to) throws IOException {
+            if (delimiter == '\n' && to > from && chars.get(to - 1) == '\r') to--;
+            view.clear();
+            view.limit(to).position(from);
+            handler.onLine(view);
+        }
+
+        private void emit(LineHandler handler) throws IOException {
+            int n = record.length();
+            if (delimiter == '\n' && n > 0 && record.charAt(n - 1) == '\r') record.setLength(n - 1);
+            handler.onLine(record);
+            record.setLength(0);
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+
+    static long allocatedBytes() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean()).getCurrentThreadAllocatedBytes();
+    }
+
+    static long checksum;
+
+    public static void main(String[] args) throws IOException {
+        // Q16 with the streaming reader: same try-with-resources shape, UTF-8 safe
+        try (StreamingReader r = new StreamingReader(new ByteArrayInputStream("hello\nwörld ✓".getBytes(StandardCharsets.UTF_8)))) {
+            r.forEachLine(line -> System.out.println(line));
+        }
+
+        long sizeMb = args.length > 0 ? Long.parseLong(args[0]) : 64;
+        Path file = Files.createTempFile("q63", ".log");
+        try {
+            try (Writer w = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+                String line = "2026-01-01T00:00:00Z INFO  request handled path=/api/ünïcode status=200 latency_ms=";
+                long written = 0;
+                for (int i = 0; written < sizeMb << 20; i++) {
+                    String s = line + (i % 1000) + "\n";
+                    w.write(s);
+                    written += s.length() + 2; // UTF-8 size: two of the chars take two bytes
+                }
+            }
+            long size = Files.size(file);
+            System.out.printf(Locale.ROOT, "Input: %,d MB%n", size >> 20);
+
+            // Q16 pattern: unbuffered read() per byte; limited to 8 MB because it is orders of magnitude slower
+            long limit = Math.min(size, 8L << 20);
+            long t0 = System.nanoTime(), a0 = allocatedBytes();
+            try (InputStream is = Files.newInputStream(file)) {
+                int b;
+                long n = 0, lines = 0;
+                while (n++ < limit && (b = is.read()) != -1) {
+                    if ((char) b == '\n') lines++;
+                }
+                checksum += lines;
+            }
+            report("Q16 read() per byte", limit, t0, a0);
+
+            t0 = System.nanoTime();
+            a0 = allocatedBytes();
+            try (BufferedReader br = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                String s;
+                while ((s = br.readLine()) != null) checksum += s.length();
+            }
+            report("BufferedReader.readLine", size, t0, a0);
+
+            t0 = System.nanoTime();
+            a0 = allocatedBytes();
+            try (StreamingReader r = StreamingReader.open(file)) {
+                r.forEachLine(line -> checksum += line.length());
+            }
+            report("StreamingReader", size, t0, a0);
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    static void report(String name, long bytes, long t0, long a0) {
+        double seconds = (System.nanoTime() - t0) / 1e9;
+        System.out.printf(Locale.ROOT, "%-24s %,9.1f MB/s  heap allocated: %,12d bytes%n",
+                name, bytes / seconds / (1 << 20), allocatedBytes() - a0);
+    }
+}
@@ -0,0 +1,243 @@
+// Q64: Primitive int/long lists instead of List<Integer> (builds on Q01, Q04, Q05, Q54, Q55)
+// Java example (requires Java 9 or later)
+//
+// Question: Q01, Q05, Q54 and Q55 keep numbers in a List<Integer>. What does boxing cost and how do you avoid it?
+// Answer: every Integer outside the -128..127 cache is a separate 16-byte object plus a 4-byte (compressed)
+// reference in the list, and every lambda call unboxes it again. A growable int[] with primitive functional
+// interfaces (IntPredicate, IntBinaryOperator, IntConsumer) stores 4 bytes per element and never allocates per
+// element. When a stream API is needed, bridge to IntStream, which is also primitive.
+//
+// Run:  java Q64_PrimitiveIntList [elements] [rounds]
+
+import java.lang.management.ManagementFactory;
+import java.util.*;
+import java.util.function.*;
+import java.util.stream.*;
+
+public class Q64_PrimitiveIntList {
+
+    public static final class IntList {
+        private int[] a;
+        private int size;
+
+        public IntList() { this(10); }
+
+        public IntList(int capacity) { a = new int[Math.max(1, capacity)]; }
+
+        public static IntList of(int... values) {
+            IntList l = new IntList(values.length);
+            System.arraycopy(values, 0, l.a, 0, values.length);
+            l.size = values.length;
+            return l;
+        }
+
+        public static IntList from(IntStream s) {
+            return of(s.toArray());
+        }
+
+        public void add(int v) {
+            if (size == a.length) a = Arrays.copyOf(a, a.length + (a.length >> 1) + 1);
+            a[size++] = v;
+        }
+
+        public void addAll(IntList other) {
+            if (size + other.size > a.length) a = Arrays.copyOf(a, Math.max(size + other.size, a.length + (a.length >> 1)));
+            System.arraycopy(other.a, 0, a, size, other.size);
+            size += other.size;
+        }
+
+        public int get(int i) {
+            Objects.checkIndex(i, size);
+            return a[i];
+        }
+
+        public int size() { return size; }
+
+        public IntList filter(IntPredicate p) {
+            IntList out = new IntList(size);
+            for (int i = 0; i < size; i++) if (p.test(a[i])) out.a[out.size++] = a[i];
+            return out;
+        }
+
+        // In-place compaction, same contract as Collection.removeIf
+        public boolean removeIf(IntPredicate p) {
+            int w = 0;
+            for (int r = 0; r < size; r++) if (!p.test(a[r])) a[w++] = a[r];
+            boolean removed = w != size;
+            size = w;
+            return removed;
+        }
+
+        public int reduce(int identity, IntBinaryOperator op) {
+            int acc = identity;
+            for (int i = 0; i < size; i++) acc = op.applyAsInt(acc, a[i]);
+            return acc;
+        }
+
+        public void forEach(IntConsumer c) {
+            for (int i = 0; i < size; i++) c.accept(a[i]);
+        }
+
+        public IntStream stream() {
+            return Arrays.stream(a, 0, size);
+        }
+
+        public int[] toArray() { return Arrays.copyOf(a, size); }
+
+        public IntList copy() {
+            IntList l = new IntList(0);
+            l.a = toArray();
+            l.size = size;
+            return l;
+        }
+
+        @Override
+        public String toString() { return Arrays.toString(toArray()); }
+    }
+
+    public static final class LongList {
+        private long[] a;
+        private int size;
+
+        public LongList() { this(10); }
+
+        public LongList(int capacity) { a = new long[Math.max(1, capacity)]; }
+
+        public static LongList of(long... values) {
+            LongList l = new LongList(values.length);
+            System.arraycopy(values, 0, l.a, 0, values.length);
+            l.size = values.length;
+            return l;
+        }
+
+        public static LongList from(LongStream s) {
+            return of(s.toArray());
+        }
+
+        public void add(long v) {
+            if (size == a.length) a = Arrays.copyOf(a, a.length + (a.length >> 1) + 1);
+            a[size++] = v;
+        }
+
+        public void addAll(LongList other) {
+            if (size + other.size > a.length) a = Arrays.copyOf(a, Math.max(size + other.size, a.length + (a.length >> 1)));
+            System.arraycopy(other.a, 0, a, size, other.size);
+            size += other.size;
+        }
+
+        public long get(int i) {
+            Objects.checkIndex(i, size);
+            return a[i];
+        }
+
+        public int size() { return size; }
+
+        public LongList filter(LongPredicate p) {
+            LongList out = new LongList(size);
+            for (int i = 0; i < size; i++) if (p.test(a[i])) out.a[out.size++] = a[i];
+            return out;
+        }
+
+        public boolean removeIf(LongPredicate p) {
+            int w = 0;
+            for (int r = 0; r < size; r++) if (!p.test(a[r])) a[w++] = a[r];
+            boolean removed = w != size;
+            size = w;
+            return removed;
+        }
+
+        public long reduce(long identity, LongBinaryOperator op) {
+            long acc = identity;
+            for (int i = 0; i < size; i++) acc = op.applyAsLong(acc, a[i]);
+            return acc;
+        }
+
+        public void forEach(LongConsumer c) {
+            for (int i = 0; i < size; i++) c.accept(a[i]);
+        }
+
+        public LongStream stream() {
+            return Arrays.stream(a, 0, size);
+        }
+
+        public long[] toArray() { return Arrays.copyOf(a, size); }
+
+        public LongList copy() {
+            LongList l = new LongList(0);
+            l.a = toArray();
+            l.size = size;
+            return l;
+        }
+
+        @Override
+        public String toString() { return Arrays.toString(toArray()); }
+    }
+
+    static long allocatedBytes() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean()).getCurrentThreadAllocatedBytes();
+    }
+
+    static long sink;
+
+    // Runs body `rounds` times after the same number of warmup rounds and prints bytes allocated per element.
+    static void measure(String name, int elements, int rounds, Runnable body) {
+        for (int i = 0; i < rounds; i++) body.run(); // warmup so the JIT (and escape analysis) has kicked in
+        long a0 = allocatedBytes(), t0 = System.nanoTime();
+        for (int i = 0; i < rounds; i++) body.run();
+        long t = System.nanoTime() - t0, bytes = allocatedBytes() - a0;
+        System.out.printf(Locale.ROOT, "%-34s %8.2f bytes/element  %6.2f ns/element%n",
+                name, (double) bytes / ((long) elements * rounds), (double) t / ((long) elements * rounds));
+    }
+
+    public static void main(String[] args) {
+        // Q01 / Q05 / Q54 / Q55 without boxing
+        IntList nums = IntList.of(1, 2, 3, 4, 5, 6);
+        nums.filter(n -> n % 2 == 0).forEach(System.out::println);           // Q01: 2 4 6
+        System.out.println(nums.reduce(0, Integer::sum));                      // Q05: 21
+        nums.stream().parallel().filter(n -> n % 2 == 0).forEachOrdered(System.out::println); // Q55: 2 4 6
+        nums.removeIf(n -> n % 2 == 0);
+        System.out.println(nums);                                              // Q54: [1, 3, 5]
+
+        int elements = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        Random rnd = new Random(1);
+        List<Integer> boxed = new ArrayList<>(elements);
+        IntList prim = new IntList(elements);
+        for (int i = 0; i < elements; i++) {
+            int v = rnd.nextInt(1_000_000);
+            boxed.add(v);
+            prim.add(v);
+        }
+
+        System.out.println("=== " + elements + " elements ===");
+        measure("boxed build List<Integer>", elements, rounds, () -> {
+            List<Integer> l = new ArrayList<>(elements);
+            for (int i = 0; i < elements; i++) l.add(i + 1000);
+            sink += l.size();
+        });
+        measure("IntList build", elements, rounds, () -> {
+            IntList l = new IntList(elements);
+            for (int i = 0; i < elements; i++) l.add(i + 1000);
+            sink += l.size();
+        });
+        measure("boxed stream().reduce(Integer::sum)", elements, rounds,
+                () -> sink += boxed.stream().reduce(0, Integer::sum));
+        measure("IntList.reduce", elements, rounds, () -> sink += prim.reduce(0, Integer::sum));
+        measure("boxed stream().filter().count()", elements, rounds,
+                () -> sink += boxed.stream().filter(n -> n % 2 == 0).count());
+        measure("IntList.stream().filter().count()", elements, rounds,
+                () -> sink += prim.stream().filter(n -> n % 2 == 0).count());
+        measure("boxed forEach", elements, rounds, () -> boxed.forEach(n -> sink += n));
+        measure("IntList.forEach", elements, rounds, () -> prim.forEach(n -> sink += n));
+        measure("boxed copy + removeIf", elements, rounds, () -> {
+            List<Integer> copy = new ArrayList<>(boxed);
+            copy.removeIf(n -> n % 2 == 0);
+            sink += copy.size();
+        });
+        measure("IntList copy + removeIf", elements, rounds, () -> {
+            IntList copy = prim.copy();
+            copy.removeIf(n -> n % 2 == 0);
+            sink += copy.size();
+        });
+    }
+}
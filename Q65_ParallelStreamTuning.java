@@ -0,0 +1,152 @@
+// Q65: Tuning parallel streams - own ForkJoinPool, split threshold, ordered collect (builds on Q09, Q55)
+// Java example (requires Java 9 or later, uses Q64_PrimitiveIntList.IntList)
+//
+// Question: Q09 and Q55 run parallel streams on the common ForkJoinPool, and Q55 uses forEachOrdered.
+// How do you control where and how finely a parallel stream runs, and how do you keep order cheaply?
+// Answer:
+//  - A parallel stream runs in the ForkJoinPool of the thread that starts the terminal operation, so submitting
+//    the pipeline to your own pool isolates it from (and limits its impact on) the common pool.
+//  - The Spliterator decides how the input is split. An array spliterator with a minimum chunk size prevents
+//    splitting cheap work into tasks smaller than the scheduling overhead.
+//  - forEachOrdered has to hand elements to the action one at a time in encounter order, which serializes the
+//    terminal stage. collect() into per-chunk buffers is also order preserving (chunks are concatenated in
+//    order), so do the work in parallel into buffers and then consume the result sequentially.
+//
+// Run:  java Q65_ParallelStreamTuning [maxElements] [parallelism]
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.*;
+import java.util.stream.*;
+
+public class Q65_ParallelStreamTuning {
+
+    // Runs a stream pipeline (built and consumed inside `pipeline`) on the given pool instead of the common pool.
+    public static <T> T runIn(ForkJoinPool pool, Supplier<T> pipeline) {
+        return pool.submit(pipeline::get).join();
+    }
+
+    public static <T> T withParallelism(int parallelism, Supplier<T> pipeline) {
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            return runIn(pool, pipeline);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    // Spliterator over int[] that refuses to split below minChunk elements.
+    public static final class IntArraySpliterator implements Spliterator.OfInt {
+        private final int[] array;
+        private int index;
+        private final int fence;
+        private final int minChunk;
+
+        public IntArraySpliterator(int[] array, int from, int to, int minChunk) {
+            this.array = array;
+            this.index = from;
+            this.fence = to;
+            this.minChunk = Math.max(1, minChunk);
+        }
+
+        @Override
+        public OfInt trySplit() {
+            int lo = index, mid = (lo + fence) >>> 1;
+            if (fence - lo < 2 * minChunk) return null;
+            index = mid;
+            return new IntArraySpliterator(array, lo, mid, minChunk);
+        }
+
+        @Override
+        public boolean tryAdvance(IntConsumer action) {
+            if (index >= fence) return false;
+            action.accept(array[index++]);
+            return true;
+        }
+
+        @Override
+        public void forEachRemaining(IntConsumer action) {
+            int[] a = array;
+            for (int i = index, hi = fence; i < hi; i++) action.accept(a[i]);
+            index = fence;
+        }
+
+        @Override
+        public long estimateSize() { return fence - index; }
+
+        @Override
+        public int characteristics() {
+            return ORDERED | SIZED | SUBSIZED | IMMUTABLE | NONNULL;
+        }
+    }
+
+    public static IntStream parallelStream(int[] array, int minChunk) {
+        return StreamSupport.intStream(new IntArraySpliterator(array, 0, array.length, minChunk), true);
+    }
+
+    // Ordered-collect mode: elements are mapped/filtered in parallel into per-chunk IntLists, concatenated in
+    // encounter order, then handed to `action` sequentially on the calling thread.
+    public static void forEachOrderedBuffered(IntStream parallel, IntConsumer action) {
+        Q64_PrimitiveIntList.IntList result = parallel.collect(Q64_PrimitiveIntList.IntList::new,
+                Q64_PrimitiveIntList.IntList::add, Q64_PrimitiveIntList.IntList::addAll);
+        result.forEach(action);
+    }
+
+    static long time(int reps, Runnable r) {
+        r.run(); // warmup
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < reps; i++) {
+            long t0 = System.nanoTime();
+            r.run();
+            best = Math.min(best, System.nanoTime() - t0);
+        }
+        return best;
+    }
+
+    static long sink;
+
+    // Per-element CPU cost: `payload` LCG steps on local state only. It writes no shared field, so parallel workers
+    // do not contend on one cache line and the timings show the cost of the work, not of cross-core cache traffic.
+    static int spin(int payload, int x) {
+        long v = x;
+        for (int i = 0; i < payload; i++) v = v * 6364136223846793005L + 1442695040888963407L;
+        return (int) (v >>> 32);
+    }
+
+    public static void main(String[] args) {
+        // Q55 on a dedicated pool with ordered-collect: prints 2 4 6 8 10 in order
+        int[] nums = {1, 2, 3, 4, 5, 6, 7, 8, 9, 10};
+        withParallelism(2, () -> {
+            forEachOrderedBuffered(parallelStream(nums, 2).filter(n -> n % 2 == 0), System.out::println);
+            return null;
+        });
+
+        int maxElements = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int parallelism = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        System.out.printf(Locale.ROOT, "%-10s %-6s %12s %12s %12s %12s %12s  (ns per element, pool parallelism=%d)%n",
+                "elements", "cost", "sequential", "parallel", "forEachOrd", "orderedBuf", "minChunk4k", parallelism);
+        for (int n = 1_000; n <= maxElements; n *= 10) {
+            int[] data = IntStream.range(0, n).toArray();
+            for (int cost : new int[]{1, 10, 100, 1_000}) {
+                if ((long) n * cost > 200_000_000L) continue; // keep the grid runnable in reasonable time
+                IntUnaryOperator f = x -> spin(cost, x); // the result depends on x, so it cannot be hoisted out
+                int reps = 5;
+                long seq = time(reps, () -> sink += Arrays.stream(data).map(f).sum());
+                long par = time(reps, () -> sink += runIn(pool, () -> Arrays.stream(data).parallel().map(f).sum()));
+                long ord = time(reps, () -> runIn(pool, () -> {
+                    Arrays.stream(data).parallel().map(f).forEachOrdered(x -> sink += x);
+                    return null;
+                }));
+                long buf = time(reps, () -> runIn(pool, () -> {
+                    forEachOrderedBuffered(Arrays.stream(data).parallel().map(f), x -> sink += x);
+                    return null;
+                }));
+                long chunk = time(reps, () -> sink += runIn(pool, () -> parallelStream(data, 4096).map(f).sum()));
+                System.out.printf(Locale.ROOT, "%-10d %-6d %12.2f %12.2f %12.2f %12.2f %12.2f%n", n, cost,
+                        (double) seq / n, (double) par / n, (double) ord / n, (double) buf / n, (double) chunk / n);
+            }
+        }
+        pool.shutdown();
+    }
+}
@@ -0,0 +1,182 @@
+// Q66: Concurrent, striped groupingBy with primitive counters (builds on Q06, Q52)
+// Java example (requires Java 16 or later)
+//
+// Question: Q06/Q52 use Collectors.groupingBy. What happens in a parallel stream, and how can high-cardinality
+// grouping be made cheaper?
+// Answer: groupingBy gives every worker its own HashMap and merges them key by key at the end, and counting()
+// stores a boxed Long that is replaced on every merge. groupingByConcurrent shares one ConcurrentHashMap, but
+// counting() still boxes. A CONCURRENT collector over a lock-striped map lets all workers update one
+// container, and a mutable long[1] per key means the count is incremented in place - no Long per update.
+// The same container can keep accepting batches (incremental mode) and hand out snapshots at any time.
+//
+// Run:  java Q66_ConcurrentGroupingCollector [elements] [distinctKeys]     (e.g. 100000000 1000000)
+
+import java.util.*;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.*;
+import java.util.stream.*;
+
+public class Q66_ConcurrentGroupingCollector {
+
+    // Map from key to a mutable accumulator, split into independently locked stripes.
+    public static final class StripedGroupingMap<K, A> {
+        private final ReentrantLock[] locks;
+        private final HashMap<K, A>[] stripes;
+        private final Function<? super K, ? extends A> newAccumulator;
+        private final int mask;
+
+        @SuppressWarnings({"unchecked", "rawtypes"}) // generic array
+        public StripedGroupingMap(int stripeCount, Function<? super K, ? extends A> newAccumulator) {
+            int n = Integer.highestOneBit(Math.max(1, stripeCount - 1)) << 1;
+            this.locks = new ReentrantLock[n];
+            this.stripes = new HashMap[n];
+            for (int i = 0; i < n; i++) {
+                locks[i] = new ReentrantLock();
+                stripes[i] = new HashMap<>();
+            }
+            this.newAccumulator = newAccumulator;
+            this.mask = n - 1;
+        }
+
+        private int stripe(Object key) {
+            int h = key.hashCode();
+            h ^= h >>> 16;
+            return (h * 0x9E3779B9 >>> 16) & mask; // different bits than HashMap uses inside the stripe
+        }
+
+        // Applies `update` to the accumulator of `key` while holding only that key's stripe lock.
+        public <V> void update(K key, V value, BiConsumer<? super A, ? super V> update) {
+            int s = stripe(key);
+            locks[s].lock();
+            try {
+                A acc = stripes[s].get(key);
+                if (acc == null) {
+                    acc = newAccumulator.apply(key);
+                    stripes[s].put(key, acc);
+                }
+                update.accept(acc, value);
+            } finally {
+                locks[s].unlock();
+            }
+        }
+
+        // Folds every accumulator of `other` into this map. Entries are copied out of `other` first, so no thread
+        // ever holds locks of both maps.
+        public void mergeFrom(StripedGroupingMap<K, A> other, BiConsumer<? super A, ? super A> merger) {
+            if (other == this) return;
+            for (Map.Entry<K, A> e : other.snapshot(Function.identity()).entrySet()) update(e.getKey(), e.getValue(), merger);
+        }
+
+        // Copies every stripe under its lock; each stripe is consistent, the whole map is not an atomic snapshot.
+        public <R> Map<K, R> snapshot(Function<? super A, ? extends R> finisher) {
+            Map<K, R> copy = new HashMap<>();
+            for (int s = 0; s < stripes.length; s++) {
+                locks[s].lock();
+                try {
+                    for (Map.Entry<K, A> e : stripes[s].entrySet()) copy.put(e.getKey(), finisher.apply(e.getValue()));
+                } finally {
+                    locks[s].unlock();
+                }
+            }
+            return copy;
+        }
+    }
+
+    // counting()-style grouping; counts live in long[1] cells and are only boxed when a snapshot is taken.
+    public static final class GroupCounter<T, K> {
+        private final Function<? super T, ? extends K> classifier;
+        private final StripedGroupingMap<K, long[]> map;
+
+        public GroupCounter(Function<? super T, ? extends K> classifier) {
+            this(classifier, 4 * Runtime.getRuntime().availableProcessors());
+        }
+
+        public GroupCounter(Function<? super T, ? extends K> classifier, int stripes) {
+            this.classifier = classifier;
+            this.map = new StripedGroupingMap<>(stripes, k -> new long[1]);
+        }
+
+        public void accept(T element) {
+            map.update(classifier.apply(element), null, (cell, ignored) -> cell[0]++);
+        }
+
+        // Incremental mode: feed batches as they arrive, possibly from several threads at once
+        public void acceptBatch(Collection<? extends T> batch) {
+            batch.parallelStream().forEach(this::accept);
+        }
+
+        public Map<K, Long> snapshot() {
+            return map.snapshot(cell -> cell[0]);
+        }
+
+        // Adds the counts of `other` to this counter and returns this
+        public GroupCounter<T, K> merge(GroupCounter<T, K> other) {
+            map.mergeFrom(other.map, (cell, more) -> cell[0] += more[0]);
+            return this;
+        }
+    }
+
+    public static <T, K> Collector<T, ?, Map<K, Long>> groupingCounting(Function<? super T, ? extends K> classifier) {
+        return Collector.of(
+                () -> new GroupCounter<T, K>(classifier),
+                GroupCounter::accept,
+                GroupCounter::merge, // not called while the collector stays CONCURRENT: one shared container
+                GroupCounter::snapshot,
+                Collector.Characteristics.CONCURRENT, Collector.Characteristics.UNORDERED);
+    }
+
+    // General downstream: per-key mutable container, e.g. ArrayList::new / List::add reproduces Q06
+    public static <T, K, C> Collector<T, ?, Map<K, C>> groupingConcurrent(Function<? super T, ? extends K> classifier,
+                                                                         Supplier<C> container,
+                                                                         BiConsumer<C, ? super T> accumulator) {
+        return Collector.<T, StripedGroupingMap<K, C>, Map<K, C>>of(
+                () -> new StripedGroupingMap<>(4 * Runtime.getRuntime().availableProcessors(), k -> container.get()),
+                (m, t) -> m.update(classifier.apply(t), t, accumulator),
+                (a, b) -> {
+                    if (a == b) return a;
+                    // There is no way to merge two C containers here; fail loudly rather than drop b's groups
+                    throw new IllegalStateException("groupingConcurrent needs one shared container (CONCURRENT)");
+                },
+                m -> m.snapshot(Function.identity()),
+                Collector.Characteristics.CONCURRENT, Collector.Characteristics.UNORDERED);
+    }
+
+    static long time(Runnable r) {
+        r.run(); // warmup
+        long t0 = System.nanoTime();
+        r.run();
+        return System.nanoTime() - t0;
+    }
+
+    public static void main(String[] args) {
+        // Q06 and Q52 with the concurrent collectors
+        List<String> list = Arrays.asList("one", "two", "three", "four", "six");
+        Map<Integer, List<String>> byLen = list.parallelStream()
+                .collect(groupingConcurrent(String::length, ArrayList::new, List::add));
+        System.out.println(byLen); // lists are unordered within a group
+        System.out.println(Stream.of("a", "bb", "ccc", "dd", "e").parallel().collect(groupingCounting(String::length)));
+
+        // Incremental mode: batches arrive over time, snapshots can be read in between
+        GroupCounter<String, Character> live = new GroupCounter<>(s -> s.charAt(0));
+        live.acceptBatch(List.of("apple", "avocado", "banana"));
+        System.out.println("after batch 1: " + live.snapshot());
+        live.acceptBatch(List.of("blueberry", "cherry"));
+        System.out.println("after batch 2: " + live.snapshot());
+
+        int elements = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int keys = args.length > 1 ? Integer.parseInt(args[1]) : 100_000;
+        int[] data = new SplittableRandom(7).ints(elements, 0, keys).toArray();
+        Function<Integer, Integer> classifier = Function.identity();
+        System.out.printf(Locale.ROOT, "=== %,d elements, %,d distinct keys, parallel streams ===%n", elements, keys);
+        long[] sizes = new long[3];
+        long t1 = time(() -> sizes[0] = Arrays.stream(data).boxed().parallel()
+                .collect(Collectors.groupingBy(classifier, Collectors.counting())).size());
+        long t2 = time(() -> sizes[1] = Arrays.stream(data).boxed().parallel()
+                .collect(Collectors.groupingByConcurrent(classifier, Collectors.counting())).size());
+        long t3 = time(() -> sizes[2] = Arrays.stream(data).boxed().parallel()
+                .collect(groupingCounting(classifier)).size());
+        System.out.printf(Locale.ROOT, "groupingBy(counting)           %,8d ms  groups=%d%n", t1 / 1_000_000, sizes[0]);
+        System.out.printf(Locale.ROOT, "groupingByConcurrent(counting) %,8d ms  groups=%d%n", t2 / 1_000_000, sizes[1]);
+        System.out.printf(Locale.ROOT, "striped groupingCounting       %,8d ms  groups=%d%n", t3 / 1_000_000, sizes[2]);
+    }
+}
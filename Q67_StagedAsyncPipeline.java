@@ -0,0 +1,213 @@
+// Q67: CompletableFuture pipelines with named, bounded, instrumented stage executors (builds on Q10-Q13)
+// Java example (requires Java 21 or later, uses Q57_ConcurrencyBenchmarks.Histogram)
+//
+// Question: Q10-Q13 call supplyAsync(...) without an executor. Where does that code run and why can it hurt?
+// Answer: on ForkJoinPool.commonPool(), which has (cores - 1) threads and is shared with every parallel stream
+// in the JVM. A stage that blocks (sleep, JDBC, HTTP) parks one of those few threads, so unrelated CPU work
+// queues up behind it. Give every stage its own executor sized for its kind of work (CPU pool, IO pool or
+// virtual threads), bound how much work may be queued so a slow stage pushes back on its producers instead of
+// growing a queue without limit, and measure queue time separately from run time to see where latency comes from.
+//
+// Run:  java Q67_StagedAsyncPipeline [blockingTasks] [cpuTasks]
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.*;
+
+public class Q67_StagedAsyncPipeline {
+
+    public enum Kind { CPU, IO, VIRTUAL }
+
+    // An Executor for one pipeline stage. execute() blocks an outside submitter while `capacity` tasks are already
+    // queued or running (backpressure), and records queue time and run time per task.
+    // A submission from inside a stage task never blocks: a CompletableFuture task completes its dependents from
+    // within run(), i.e. while still holding its own permit, so waiting there for a permit of this (or another)
+    // full stage can deadlock the pipeline. Such submissions go to an overflow queue instead, which this stage's
+    // own threads drain as permits come back, so every task still runs on the stage it was submitted to. The
+    // overflow only holds dependents of work that already passed backpressure at the head of the pipeline.
+    public static final class Stage implements Executor, AutoCloseable {
+        private static final ThreadLocal<Stage> RUNNING = new ThreadLocal<>(); // stage whose task this thread runs
+
+        private record Queued(Runnable task, long enqueued) {}
+
+        private final String name;
+        private final ExecutorService delegate;
+        private final Semaphore capacity;
+        private final Queue<Queued> overflow = new ConcurrentLinkedQueue<>();
+        private final Q57_ConcurrencyBenchmarks.Histogram queueTime = new Q57_ConcurrencyBenchmarks.Histogram();
+        private final Q57_ConcurrencyBenchmarks.Histogram runTime = new Q57_ConcurrencyBenchmarks.Histogram();
+        private long overflowed;
+
+        public Stage(String name, Kind kind, int threads, int capacity) {
+            this.name = name;
+            this.capacity = new Semaphore(capacity);
+            this.delegate = switch (kind) {
+                case CPU, IO -> Executors.newFixedThreadPool(threads, Thread.ofPlatform().name(name + "-", 0).factory());
+                case VIRTUAL -> Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(name + "-", 0).factory());
+            };
+        }
+
+        @Override
+        public void execute(Runnable task) {
+            long enqueued = System.nanoTime();
+            if (!capacity.tryAcquire()) {
+                if (RUNNING.get() != null) {
+                    synchronized (this) { overflowed++; }
+                    overflow.add(new Queued(task, enqueued));
+                    drainOverflow(); // a permit may have come back between tryAcquire and add
+                    return;
+                }
+                capacity.acquireUninterruptibly();
+            }
+            submit(task, enqueued);
+        }
+
+        // Caller holds a permit, which the submitted task releases when it finishes
+        private void submit(Runnable task, long enqueued) {
+            try {
+                delegate.execute(() -> run(task, enqueued));
+            } catch (RejectedExecutionException e) {
+                capacity.release();
+                throw e;
+            }
+        }
+
+        // Hands free permits to overflowed tasks. Called after every add to the overflow and after every release,
+        // so a queued task cannot be left behind while permits are free.
+        private void drainOverflow() {
+            while (!overflow.isEmpty() && capacity.tryAcquire()) {
+                Queued q = overflow.poll();
+                if (q == null) capacity.release(); // another thread took it; re-check
+                else submit(q.task(), q.enqueued());
+            }
+        }
+
+        private void run(Runnable task, long enqueued) {
+            Stage outer = RUNNING.get();
+            RUNNING.set(this);
+            long started = System.nanoTime();
+            try {
+                task.run();
+            } finally {
+                long finished = System.nanoTime();
+                synchronized (this) {
+                    queueTime.record(started - enqueued);
+                    runTime.record(finished - started);
+                }
+                RUNNING.set(outer);
+                capacity.release();
+                drainOverflow();
+            }
+        }
+
+        public synchronized String stats() {
+            return String.format(Locale.ROOT, "%-8s tasks=%-6d overflowed=%-5d queue p50=%,9d us p99=%,9d us | run p50=%,9d us p99=%,9d us",
+                    name, runTime.count(), overflowed, queueTime.percentile(50) / 1000, queueTime.percentile(99) / 1000,
+                    runTime.percentile(50) / 1000, runTime.percentile(99) / 1000);
+        }
+
+        @Override
+        public void close() {
+            delegate.close();
+        }
+    }
+
+    // Thin fluent wrapper: each step names the stage it runs on; failures propagate like plain CompletableFuture.
+    public static final class Pipeline<T> {
+        private final CompletableFuture<T> future;
+
+        private Pipeline(CompletableFuture<T> future) { this.future = future; }
+
+        public static <T> Pipeline<T> supply(Supplier<T> supplier, Stage stage) {
+            return new Pipeline<>(CompletableFuture.supplyAsync(supplier, stage));
+        }
+
+        public <R> Pipeline<R> then(Function<? super T, ? extends R> fn, Stage stage) {
+            return new Pipeline<>(future.thenApplyAsync(fn, stage));
+        }
+
+        // Same semantics as Q13: the function sees the (wrapped) exception and supplies a fallback value
+        public Pipeline<T> exceptionally(Function<Throwable, ? extends T> fallback) {
+            return new Pipeline<>(future.exceptionally(fallback));
+        }
+
+        public CompletableFuture<T> toFuture() { return future; }
+
+        public T join() { return future.join(); }
+    }
+
+    static void sleep(long ms) {
+        try { Thread.sleep(ms); } catch (InterruptedException e) { Thread.currentThread().interrupt(); }
+    }
+
+    // Measures how long small CPU tasks take from submission to completion while blocking work is in flight.
+    static Q57_ConcurrencyBenchmarks.Histogram cpuLatency(int cpuTasks, Function<Supplier<Long>, CompletableFuture<Long>> submit) {
+        Q57_ConcurrencyBenchmarks.Histogram h = new Q57_ConcurrencyBenchmarks.Histogram();
+        for (int i = 0; i < cpuTasks; i++) {
+            long t0 = System.nanoTime();
+            submit.apply(() -> Q57_ConcurrencyBenchmarks.work(10_000)).join();
+            h.record(System.nanoTime() - t0);
+            sleep(2);
+        }
+        return h;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int blockingTasks = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        int cpuTasks = args.length > 1 ? Integer.parseInt(args[1]) : 100;
+        int cores = Runtime.getRuntime().availableProcessors();
+
+        try (Stage cpu = new Stage("cpu", Kind.CPU, cores, 4 * cores);
+             Stage io = new Stage("io", Kind.VIRTUAL, 0, 1_000)) {
+            // Q10-Q13 on named stages: supply on io, transform on cpu, recover like Q13
+            String s = Pipeline.supply(() -> "Hello", io).then(String::toUpperCase, cpu).join();
+            System.out.println(s); // HELLO
+            int recovered = Pipeline.supply(() -> Integer.parseInt("not a number"), cpu)
+                    .exceptionally(ex -> {
+                        System.out.println("Handled: " + ex);
+                        return 0;
+                    }).join();
+            System.out.println(recovered); // 0
+
+            // A chained step on a full stage must not wait for the permit its own predecessor still holds
+            try (Stage single = new Stage("single", Kind.CPU, 1, 1)) {
+                int chained = Pipeline.supply(() -> { sleep(200); return 1; }, single).then(x -> x + 1, single)
+                        .toFuture().get(5, TimeUnit.SECONDS); // TimeoutException here would mean a deadlock
+                System.out.println("chained on a stage of capacity 1: " + chained); // 2
+
+                // ... and a step submitted to another full stage still runs on that stage's threads, not the caller's
+                try (Stage other = new Stage("other", Kind.CPU, 1, 1)) {
+                    other.execute(() -> sleep(200)); // takes the only permit
+                    String ranOn = Pipeline.supply(() -> 1, single).then(x -> Thread.currentThread().getName(), other)
+                            .toFuture().get(5, TimeUnit.SECONDS);
+                    System.out.println("step for a full stage ran on: " + ranOn); // other-0
+                }
+            }
+
+            // 1) Everything on the common pool: blocking stages occupy its threads, CPU tasks wait
+            List<CompletableFuture<?>> blocking = new ArrayList<>();
+            for (int i = 0; i < blockingTasks; i++) {
+                blocking.add(CompletableFuture.supplyAsync(() -> { sleep(50); return 0; })
+                        .thenApplyAsync(x -> Q57_ConcurrencyBenchmarks.work(1_000)));
+            }
+            Q57_ConcurrencyBenchmarks.Histogram shared = cpuLatency(cpuTasks, CompletableFuture::supplyAsync);
+            CompletableFuture.allOf(blocking.toArray(CompletableFuture[]::new)).join();
+
+            // 2) Stage isolation: blocking stage on virtual threads, CPU stage on its own pool
+            blocking.clear();
+            for (int i = 0; i < blockingTasks; i++) {
+                blocking.add(Pipeline.supply(() -> { sleep(50); return 0; }, io)
+                        .then(x -> Q57_ConcurrencyBenchmarks.work(1_000), cpu).toFuture());
+            }
+            Q57_ConcurrencyBenchmarks.Histogram isolated = cpuLatency(cpuTasks, task -> CompletableFuture.supplyAsync(task, cpu));
+            CompletableFuture.allOf(blocking.toArray(CompletableFuture[]::new)).join();
+
+            System.out.printf(Locale.ROOT, "CPU task latency, common pool : p50=%,9d us  p99=%,9d us%n",
+                    shared.percentile(50) / 1000, shared.percentile(99) / 1000);
+            System.out.printf(Locale.ROOT, "CPU task latency, stage pools : p50=%,9d us  p99=%,9d us%n",
+                    isolated.percentile(50) / 1000, isolated.percentile(99) / 1000);
+            System.out.println(io.stats());
+            System.out.println(cpu.stats());
+        }
+    }
+}
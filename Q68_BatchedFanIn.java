@@ -0,0 +1,281 @@
+// Q68: Fan-out / fan-in over many tasks without allOf (builds on Q41_CompletableFutureAllOf)
+// Java example (requires Java 21 or later)
+//
+// Question: Q41 combines two futures with allOf(f1, f2) and then join()s each. What changes with 1M tasks?
+// Answer: every task becomes a CompletableFuture plus its completion node, allOf builds a balanced tree of
+// intermediate futures over all of them, and all tasks are queued at once. When the tasks are just "compute
+// item i", it is far cheaper to start K runners that claim indexes from a shared counter and write each result
+// straight into a preallocated array (or a long[] for primitive results). The same structure gives:
+//  - limited concurrency: at most K tasks in flight,
+//  - fail-fast: the first failure (or an interrupt of the caller) stops all runners from claiming more work and
+//    interrupts the items still in flight,
+//  - partial results: on timeout, the remaining work is cancelled the same way and the caller gets what had
+//    completed by the deadline plus a per-index completion flag.
+//
+// Run:  java Q68_BatchedFanIn [tasks...]       (default: 10000 1000000)
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.lang.management.ManagementFactory;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import java.util.function.*;
+
+public class Q68_BatchedFanIn {
+
+    private static final VarHandle DONE = MethodHandles.arrayElementVarHandle(byte[].class);
+
+    public static final class Result<R> {
+        private final R values;     // Object[] or long[], index i valid only if isDone(i)
+        private final byte[] done;
+        private final int completed;
+        private final Throwable failure;
+        private final boolean timedOut;
+
+        Result(R values, byte[] done, int completed, Throwable failure, boolean timedOut) {
+            this.values = values;
+            this.done = done;
+            this.completed = completed;
+            this.failure = failure;
+            this.timedOut = timedOut;
+        }
+
+        public R values() { return values; }
+
+        public boolean isDone(int i) { return (byte) DONE.getAcquire(done, i) != 0; }
+
+        public int completed() { return completed; }
+
+        public Throwable failure() { return failure; }
+
+        public boolean timedOut() { return timedOut; }
+
+        public boolean isComplete() { return failure == null && !timedOut && completed == done.length; }
+    }
+
+    // Core engine: `work` computes and stores the result for one index.
+    // The first failure, the deadline, an interrupt of the waiting caller or a rejection by the executor cancels the
+    // batch: no runner claims another index and runners still inside `work` are interrupted.
+    static <R> Result<R> run(int n, R values, IntConsumer work, Executor executor, int maxInFlight,
+                             long timeout, TimeUnit unit) throws InterruptedException {
+        byte[] done = new byte[n];
+        AtomicInteger next = new AtomicInteger();
+        AtomicInteger completed = new AtomicInteger();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        int runners = Math.max(1, Math.min(maxInFlight, n));
+        Runners running = new Runners(runners);
+        CountDownLatch finished = new CountDownLatch(runners);
+        for (int r = 0; r < runners; r++) {
+            final int slot = r;
+            Runnable runner = () -> {
+                try {
+                    if (!running.enter(slot)) return;
+                    try {
+                        int i;
+                        while (!running.cancelled && (i = next.getAndIncrement()) < n) {
+                            try {
+                                work.accept(i);
+                                if (running.cancelled) break;
+                                DONE.setRelease(done, i, (byte) 1);
+                                completed.incrementAndGet();
+                            } catch (Throwable t) {
+                                if (failure.compareAndSet(null, t)) running.cancel();
+                            }
+                        }
+                    } finally {
+                        running.exit(slot);
+                    }
+                } finally {
+                    finished.countDown();
+                }
+            };
+            try {
+                executor.execute(runner);
+            } catch (RuntimeException | Error e) {
+                running.cancel(); // runners that did start must not keep going after the caller saw the failure
+                throw e;
+            }
+        }
+        boolean inTime;
+        try {
+            inTime = finished.await(timeout, unit);
+        } catch (InterruptedException e) {
+            running.cancel();
+            throw e;
+        }
+        if (!inTime) {
+            // Runners may still be finishing an item, so freeze the flags: the Result must agree with itself.
+            // values[i] of an index that is done in the snapshot was written before its flag and never changes again.
+            running.cancel();
+            byte[] snapshot = done.clone();
+            VarHandle.acquireFence();
+            int count = 0;
+            for (byte b : snapshot) count += b;
+            return new Result<>(values, snapshot, count, failure.get(), true);
+        }
+        return new Result<>(values, done, completed.get(), failure.get(), false);
+    }
+
+    // Tracks which pool thread runs which runner, so cancel() interrupts only threads still working on this batch
+    // and never a pool thread that has already moved on to someone else's task.
+    private static final class Runners {
+        private final Thread[] threads;
+        private final boolean[] interrupted;
+        volatile boolean cancelled;
+
+        Runners(int runners) {
+            threads = new Thread[runners];
+            interrupted = new boolean[runners];
+        }
+
+        synchronized boolean enter(int slot) {
+            if (cancelled) return false;
+            threads[slot] = Thread.currentThread();
+            return true;
+        }
+
+        synchronized void exit(int slot) {
+            threads[slot] = null;
+            if (interrupted[slot]) Thread.interrupted(); // do not leak our interrupt into the pool thread's next task
+        }
+
+        synchronized void cancel() {
+            cancelled = true;
+            for (int r = 0; r < threads.length; r++) {
+                if (threads[r] != null && threads[r] != Thread.currentThread()) {
+                    interrupted[r] = true;
+                    threads[r].interrupt();
+                }
+            }
+        }
+    }
+
+    public static <T> Result<Object[]> map(int n, IntFunction<? extends T> task, Executor executor, int maxInFlight,
+                                           long timeout, TimeUnit unit) throws InterruptedException {
+        Object[] values = new Object[n];
+        return run(n, values, i -> values[i] = task.apply(i), executor, maxInFlight, timeout, unit);
+    }
+
+    public static Result<long[]> mapToLong(int n, IntToLongFunction task, Executor executor, int maxInFlight,
+                                           long timeout, TimeUnit unit) throws InterruptedException {
+        long[] values = new long[n];
+        return run(n, values, i -> values[i] = task.applyAsLong(i), executor, maxInFlight, timeout, unit);
+    }
+
+    static void sleep(long ms) { try { Thread.sleep(ms); } catch (InterruptedException e) { Thread.currentThread().interrupt(); } }
+
+    static long totalAllocatedBytes() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean()).getTotalThreadAllocatedBytes();
+    }
+
+    public static void main(String[] args) throws Exception {
+        int cores = Runtime.getRuntime().availableProcessors();
+        ExecutorService pool = Executors.newFixedThreadPool(cores);
+
+        // Q41 shape: two results, now into one array
+        Result<Object[]> ab = map(2, i -> i == 0 ? "A" : "B", pool, 2, 1, TimeUnit.SECONDS);
+        System.out.println("Both done: " + ab.values()[0] + ab.values()[1]); // AB
+
+        // Fail-fast: item 3 fails, runners stop claiming new indexes
+        Result<long[]> failing = mapToLong(1_000, i -> { if (i == 3) throw new IllegalStateException("item 3"); return i; },
+                pool, 2, 1, TimeUnit.SECONDS);
+        System.out.println("failure=" + failing.failure() + " completed=" + failing.completed() + " of 1000");
+
+        // Cancellation reaches in-flight items: item 0 would block for a minute, item 1 fails (or the caller is
+        // interrupted) shortly after, and item 0 must be interrupted instead of running on in the background
+        try (ExecutorService two = Executors.newFixedThreadPool(2)) {
+            CountDownLatch interrupted = new CountDownLatch(1);
+            IntToLongFunction blockOrFail = i -> {
+                if (i == 1) { sleep(50); throw new IllegalStateException("item 1"); }
+                try { Thread.sleep(60_000); } catch (InterruptedException e) { interrupted.countDown(); }
+                return i;
+            };
+            long t0 = System.nanoTime();
+            Result<long[]> cancelled = mapToLong(2, blockOrFail, two, 2, 1, TimeUnit.MINUTES);
+            boolean stopped = interrupted.await(5, TimeUnit.SECONDS);
+            System.out.printf(Locale.ROOT, "failure=%s in-flight item interrupted=%b after %d ms%n",
+                    cancelled.failure(), stopped, (System.nanoTime() - t0) / 1_000_000);
+
+            CountDownLatch callerInterrupted = new CountDownLatch(1);
+            IntToLongFunction block = i -> {
+                try { Thread.sleep(60_000); } catch (InterruptedException e) { callerInterrupted.countDown(); }
+                return i;
+            };
+            AtomicReference<Throwable> thrown = new AtomicReference<>();
+            Thread caller = new Thread(() -> {
+                try {
+                    mapToLong(2, block, two, 2, 1, TimeUnit.MINUTES);
+                } catch (Throwable t) {
+                    thrown.set(t);
+                }
+            });
+            caller.start();
+            sleep(50);
+            caller.interrupt();
+            caller.join();
+            System.out.println("caller interrupt: thrown=" + thrown.get() + " workers interrupted="
+                    + callerInterrupted.await(5, TimeUnit.SECONDS));
+
+            // The executor accepts the first runner and rejects the second: the first must not keep running
+            AtomicInteger inWork = new AtomicInteger();
+            AtomicInteger accepted = new AtomicInteger();
+            Executor rejectSecond = task -> {
+                if (accepted.getAndIncrement() > 0) throw new RejectedExecutionException("full");
+                two.execute(task);
+            };
+            IntToLongFunction blockUntilCancelled = i -> {
+                inWork.incrementAndGet();
+                try { Thread.sleep(60_000); } catch (InterruptedException e) { /* cancelled */ } finally { inWork.decrementAndGet(); }
+                return i;
+            };
+            try {
+                mapToLong(2, blockUntilCancelled, rejectSecond, 2, 1, TimeUnit.MINUTES);
+            } catch (RejectedExecutionException e) {
+                // the accepted runner either never starts (batch already cancelled) or is interrupted
+                long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+                sleep(50);
+                while (inWork.get() > 0 && System.nanoTime() < deadline) sleep(10);
+                System.out.println("rejected: " + e.getMessage() + ", accepted runner stopped=" + (inWork.get() == 0));
+            }
+        }
+
+        // Partial results on timeout: at most 4 in flight, each item sleeps 10 ms, deadline 100 ms
+        Result<long[]> partial = mapToLong(1_000, i -> { sleep(10); return i; },
+                pool, 4, 100, TimeUnit.MILLISECONDS);
+        System.out.println("timedOut=" + partial.timedOut() + " completed=" + partial.completed() + " (partial results usable)");
+        sleep(50); // items that were in flight at the deadline are cancelled and must not show up afterwards
+        int doneFlags = 0;
+        for (int i = 0; i < 1_000; i++) if (partial.isDone(i)) doneFlags++;
+        if (doneFlags != partial.completed()) {
+            throw new AssertionError("timed-out result changed: completed=" + partial.completed() + " done flags=" + doneFlags);
+        }
+
+        int[] sizes = args.length > 0 ? Arrays.stream(args).mapToInt(Integer::parseInt).toArray() : new int[]{10_000, 1_000_000};
+        for (int n : sizes) {
+            for (int round = 0; round < 3; round++) { // last round is reported, earlier ones are warmup
+                long a0 = totalAllocatedBytes(), t0 = System.nanoTime();
+                List<CompletableFuture<Long>> fs = new ArrayList<>(n);
+                for (int i = 0; i < n; i++) {
+                    final int idx = i;
+                    fs.add(CompletableFuture.supplyAsync(() -> (long) idx * idx, pool));
+                }
+                CompletableFuture.allOf(fs.toArray(CompletableFuture[]::new)).join();
+                long sum = 0;
+                for (CompletableFuture<Long> f : fs) sum += f.join();
+                long t1 = System.nanoTime(), a1 = totalAllocatedBytes();
+
+                Result<long[]> r = mapToLong(n, i -> (long) i * i, pool, cores, 1, TimeUnit.MINUTES);
+                long sum2 = 0;
+                for (long v : r.values()) sum2 += v;
+                long t2 = System.nanoTime(), a2 = totalAllocatedBytes();
+                if (round == 2) {
+                    System.out.printf(Locale.ROOT, "n=%,-10d allOf+join: %,7d ms %,7.1f bytes/task | fan-in: %,7d ms %,7.1f bytes/task  (sums equal: %b)%n",
+                            n, (t1 - t0) / 1_000_000, (double) (a1 - a0) / n, (t2 - t1) / 1_000_000, (double) (a2 - a1) / n,
+                            sum == sum2);
+                }
+            }
+        }
+        pool.shutdown();
+    }
+}
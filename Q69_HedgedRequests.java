@@ -0,0 +1,192 @@
+// Q69: Typed first-success racing and hedged requests (builds on Q42_CompletableFutureAnyOf)
+// Java example (requires Java 21 or later, uses Q57_ConcurrencyBenchmarks.Histogram)
+//
+// Question: Q42 races two futures with anyOf. What are its limits, and how do you cut tail latency against
+// replicated backends without doubling their load?
+// Answer: anyOf returns Object, completes with the first result even if that result is an exception, and leaves
+// the slower future running. firstSuccessful(...) is typed, ignores failures while another attempt can still
+// succeed, and cancels the losers. A hedged request sends one attempt, and only if it has not answered after
+// the p95 latency (taken from a live histogram of recent calls) sends a backup to another replica. Since only
+// the slowest ~5% of calls get a hedge, the extra load stays small, and a budget caps it under overload.
+//
+// Run:  java Q69_HedgedRequests [requests] [concurrency]
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import java.util.function.Supplier;
+
+public class Q69_HedgedRequests {
+
+    // Completes with the first successful result; fails only when every attempt failed. Losers are cancelled.
+    public static <T> CompletableFuture<T> firstSuccessful(List<? extends CompletableFuture<? extends T>> attempts) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        if (attempts.isEmpty()) {
+            result.completeExceptionally(new NoSuchElementException("no attempts"));
+            return result;
+        }
+        AtomicInteger remaining = new AtomicInteger(attempts.size());
+        List<Throwable> failures = Collections.synchronizedList(new ArrayList<>());
+        for (CompletableFuture<? extends T> f : attempts) {
+            f.whenComplete((v, ex) -> {
+                if (ex == null) {
+                    result.complete(v);
+                } else {
+                    failures.add(ex);
+                    if (remaining.decrementAndGet() == 0) {
+                        CompletionException all = new CompletionException("all " + attempts.size() + " attempts failed", failures.get(0));
+                        failures.stream().skip(1).forEach(all::addSuppressed);
+                        result.completeExceptionally(all);
+                    }
+                }
+            });
+        }
+        result.whenComplete((v, ex) -> attempts.forEach(f -> f.cancel(true)));
+        return result;
+    }
+
+    // Percentile estimate over recent calls: record into `current`, read from the last full window.
+    public static final class LatencyTracker {
+        private final int window;
+        private Q57_ConcurrencyBenchmarks.Histogram current = new Q57_ConcurrencyBenchmarks.Histogram();
+        private Q57_ConcurrencyBenchmarks.Histogram previous;
+
+        public LatencyTracker(int window) { this.window = window; }
+
+        public synchronized void record(long nanos) {
+            current.record(nanos);
+            if (current.count() >= window) {
+                previous = current;
+                current = new Q57_ConcurrencyBenchmarks.Histogram();
+            }
+        }
+
+        public synchronized long percentile(double p, long fallbackNanos) {
+            return previous == null ? fallbackNanos : previous.percentile(p);
+        }
+    }
+
+    public static final class Hedger {
+        private final ScheduledExecutorService timer;
+        private final LatencyTracker latency = new LatencyTracker(1_000);
+        private final double percentile;
+        private final double maxExtraLoad;
+        private final AtomicLong requests = new AtomicLong(), hedges = new AtomicLong();
+
+        // percentile: hedge delay (e.g. 95); maxExtraLoad: at most this fraction of requests may be hedged
+        public Hedger(ScheduledExecutorService timer, double percentile, double maxExtraLoad) {
+            this.timer = timer;
+            this.percentile = percentile;
+            this.maxExtraLoad = maxExtraLoad;
+        }
+
+        public <T> CompletableFuture<T> call(Supplier<CompletableFuture<T>> attempt) {
+            long start = System.nanoTime();
+            requests.incrementAndGet();
+            CompletableFuture<T> primary = attempt.get();
+            // A primary cancelled because the hedge won is one of the slow calls: record its elapsed time as a lower
+            // bound. Dropping it would leave only fast samples, lowering the hedge delay and firing ever more hedges.
+            primary.whenComplete((v, ex) -> {
+                if (ex == null || primary.isCancelled()) latency.record(System.nanoTime() - start);
+            });
+
+            CompletableFuture<T> backup = new CompletableFuture<>();
+            AtomicReference<CompletableFuture<T>> sent = new AtomicReference<>();
+            long delay = latency.percentile(percentile, TimeUnit.MILLISECONDS.toNanos(50));
+            ScheduledFuture<?> hedge = timer.schedule(() -> {
+                if (primary.isDone() || hedges.get() + 1 > maxExtraLoad * requests.get()) {
+                    backup.cancel(false); // not needed, or over budget: the race is the primary alone
+                    return;
+                }
+                hedges.incrementAndGet();
+                CompletableFuture<T> second = attempt.get();
+                sent.set(second);
+                second.whenComplete((v, ex) -> {
+                    if (ex == null) backup.complete(v); else backup.completeExceptionally(ex);
+                });
+            }, delay, TimeUnit.NANOSECONDS);
+
+            // a backup that was never sent must not count as a successful or failed attempt
+            CompletableFuture<T> result = firstSuccessful(List.of(primary, backup.exceptionallyCompose(ex ->
+                    backup.isCancelled() ? primary : CompletableFuture.failedFuture(ex))));
+            result.whenComplete((v, ex) -> {
+                hedge.cancel(false);
+                CompletableFuture<T> second = sent.get();
+                if (second != null) second.cancel(true); // loser of the race frees its replica
+            });
+            return result;
+        }
+
+        public long requests() { return requests.get(); }
+
+        public long hedges() { return hedges.get(); }
+    }
+
+    // Replica with a heavy-tailed latency: usually ~5 ms, 5% of calls 50-500 ms (GC pause, slow disk...).
+    // Non-blocking: the response is completed by a timer, so a cancelled call stops occupying the backend.
+    static final class SimulatedBackend {
+        private final ScheduledExecutorService timer;
+        final AtomicLong calls = new AtomicLong();
+
+        SimulatedBackend(ScheduledExecutorService timer) { this.timer = timer; }
+
+        CompletableFuture<String> call() {
+            calls.incrementAndGet();
+            ThreadLocalRandom rnd = ThreadLocalRandom.current();
+            long micros = rnd.nextDouble() < 0.05
+                    ? 50_000 + (long) (450_000 * Math.pow(rnd.nextDouble(), 3))
+                    : 4_000 + (long) (2_000 * rnd.nextDouble());
+            CompletableFuture<String> f = new CompletableFuture<>();
+            ScheduledFuture<?> done = timer.schedule(() -> f.complete("ok"), micros, TimeUnit.MICROSECONDS);
+            f.whenComplete((v, ex) -> { if (f.isCancelled()) done.cancel(false); });
+            return f;
+        }
+    }
+
+    static Q57_ConcurrencyBenchmarks.Histogram drive(int requests, int concurrency, Supplier<CompletableFuture<String>> call)
+            throws InterruptedException {
+        Q57_ConcurrencyBenchmarks.Histogram h = new Q57_ConcurrencyBenchmarks.Histogram();
+        Semaphore inFlight = new Semaphore(concurrency);
+        CountDownLatch all = new CountDownLatch(requests);
+        for (int i = 0; i < requests; i++) {
+            inFlight.acquire();
+            long t0 = System.nanoTime();
+            call.get().whenComplete((v, ex) -> {
+                synchronized (h) { h.record(System.nanoTime() - t0); }
+                inFlight.release();
+                all.countDown();
+            });
+        }
+        all.await();
+        return h;
+    }
+
+    public static void main(String[] args) throws Exception {
+        ScheduledExecutorService timer = Executors.newScheduledThreadPool(2);
+
+        // Q42 with types and a failing fast attempt: the failure does not win, the slow success does
+        CompletableFuture<String> slow = CompletableFuture.supplyAsync(() -> { sleep(200); return "slow"; });
+        CompletableFuture<String> failsFast = CompletableFuture.supplyAsync(() -> { throw new IllegalStateException("fast failure"); });
+        String first = firstSuccessful(List.of(slow, failsFast)).join();
+        System.out.println("First successful: " + first); // slow
+
+        int requests = args.length > 0 ? Integer.parseInt(args[0]) : 20_000;
+        int concurrency = args.length > 1 ? Integer.parseInt(args[1]) : 64;
+
+        SimulatedBackend plain = new SimulatedBackend(timer);
+        Q57_ConcurrencyBenchmarks.Histogram base = drive(requests, concurrency, plain::call);
+
+        SimulatedBackend hedgedBackend = new SimulatedBackend(timer);
+        Hedger hedger = new Hedger(timer, 95, 0.10);
+        Q57_ConcurrencyBenchmarks.Histogram hedged = drive(requests, concurrency, () -> hedger.call(hedgedBackend::call));
+
+        System.out.printf(Locale.ROOT, "no hedging : p50=%,7d us  p99=%,7d us  p99.9=%,7d us  backend calls=%,d%n",
+                base.percentile(50) / 1000, base.percentile(99) / 1000, base.percentile(99.9) / 1000, plain.calls.get());
+        System.out.printf(Locale.ROOT, "hedged p95 : p50=%,7d us  p99=%,7d us  p99.9=%,7d us  backend calls=%,d (+%.1f%% load)%n",
+                hedged.percentile(50) / 1000, hedged.percentile(99) / 1000, hedged.percentile(99.9) / 1000,
+                hedgedBackend.calls.get(), 100.0 * hedger.hedges() / hedger.requests());
+        timer.shutdownNow();
+    }
+
+    static void sleep(long ms) { try { Thread.sleep(ms); } catch (InterruptedException e) { Thread.currentThread().interrupt(); } }
+}
@@ -0,0 +1,291 @@
+// Q70: Structured concurrency - task scopes over virtual threads (replaces the placeholder in Q48)
+// Java example (requires Java 21 or later; does not need the preview StructuredTaskScope API)
+//
+// Question: What does structured concurrency guarantee, and how is it different from ExecutorService + Future.get
+// as in Q34?
+// Answer: subtasks are forked inside a scope and can never outlive it. When the scope closes, every subtask has
+// finished or been cancelled (interrupted) and joined, so no thread leaks, even when the parent is interrupted.
+//  - shutdown-on-failure: the first failure cancels the siblings ("all must succeed").
+//  - shutdown-on-success: the first success cancels the siblings ("any one is enough").
+//  - a deadline set on an outer scope is inherited by nested scopes, which may only shorten it.
+// With an ExecutorService the caller waits on get() in submission order, learns about a failure only when it
+// reaches that future, and the remaining tasks keep running after the request has already failed.
+//
+// Run:  java Q70_StructuredTaskScopes [requests]
+
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.*;
+
+public class Q70_StructuredTaskScopes {
+
+    public enum Policy { SHUTDOWN_ON_FAILURE, SHUTDOWN_ON_SUCCESS }
+
+    private static final InheritableThreadLocal<Instant> DEADLINE = new InheritableThreadLocal<>();
+
+    // Deadline of the innermost enclosing scope, if any (visible in subtasks and nested scopes)
+    public static Optional<Instant> currentDeadline() {
+        return Optional.ofNullable(DEADLINE.get());
+    }
+
+    public static final class Subtask<T> {
+        public enum State { RUNNING, SUCCESS, FAILED, CANCELLED }
+
+        private volatile State state = State.RUNNING;
+        private T result;
+        private Throwable exception;
+        private Thread thread;
+
+        public State state() { return state; }
+
+        public T get() {
+            if (state != State.SUCCESS) throw new IllegalStateException("subtask is " + state);
+            return result;
+        }
+
+        public Throwable exception() { return exception; }
+    }
+
+    public static final class Scope<T> implements AutoCloseable {
+        private final Policy policy;
+        private final Instant deadline;
+        private final Instant outerDeadline;
+        private final Thread owner = Thread.currentThread();
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Condition changed = lock.newCondition();
+        private final List<Subtask<? extends T>> subtasks = new ArrayList<>();
+        private int running;
+        private boolean shutdown;
+        private Subtask<? extends T> firstSuccess;
+        private Throwable firstFailure;
+
+        public Scope(Policy policy) {
+            this(policy, null);
+        }
+
+        // The effective deadline is the earlier of `deadline` and the one inherited from an enclosing scope
+        public Scope(Policy policy, Instant deadline) {
+            this.policy = policy;
+            this.outerDeadline = DEADLINE.get();
+            this.deadline = outerDeadline == null ? deadline
+                    : deadline == null || outerDeadline.isBefore(deadline) ? outerDeadline : deadline;
+            DEADLINE.set(this.deadline);
+        }
+
+        public <U extends T> Subtask<U> fork(Callable<? extends U> task) {
+            checkOwner();
+            Subtask<U> subtask = new Subtask<>();
+            lock.lock();
+            try {
+                if (shutdown) {
+                    subtask.state = Subtask.State.CANCELLED;
+                    return subtask;
+                }
+                running++;
+                subtasks.add(subtask);
+                subtask.thread = Thread.ofVirtual().unstarted(() -> run(subtask, task));
+                subtask.thread.start(); // inherits DEADLINE from the owner thread
+            } finally {
+                lock.unlock();
+            }
+            return subtask;
+        }
+
+        private <U extends T> void run(Subtask<U> subtask, Callable<? extends U> task) {
+            U value = null;
+            Throwable failure = null;
+            try {
+                value = task.call();
+            } catch (Throwable t) {
+                failure = t;
+            }
+            lock.lock();
+            try {
+                if (shutdown && (failure instanceof InterruptedException || Thread.currentThread().isInterrupted())) {
+                    subtask.state = Subtask.State.CANCELLED;
+                } else if (failure == null) {
+                    subtask.result = value;
+                    subtask.state = Subtask.State.SUCCESS;
+                    if (policy == Policy.SHUTDOWN_ON_SUCCESS && firstSuccess == null) {
+                        firstSuccess = subtask;
+                        shutdownLocked();
+                    }
+                } else {
+                    subtask.exception = failure;
+                    subtask.state = Subtask.State.FAILED;
+                    if (firstFailure == null) firstFailure = failure;
+                    if (policy == Policy.SHUTDOWN_ON_FAILURE) shutdownLocked();
+                }
+                running--;
+                changed.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        // Waits until all subtasks are done or the policy shut the scope down. Throws TimeoutException (after
+        // cancelling everything) if the deadline passes first.
+        public Scope<T> join() throws InterruptedException, TimeoutException {
+            checkOwner();
+            lock.lock();
+            try {
+                while (running > 0 && !shutdown) {
+                    if (deadline == null) {
+                        changed.await();
+                    } else if (!changed.awaitUntil(Date.from(deadline))) {
+                        shutdownLocked();
+                        throw new TimeoutException("deadline " + deadline + " exceeded");
+                    }
+                }
+                return this;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        // SHUTDOWN_ON_FAILURE: rethrows the first failure, wrapped
+        public void throwIfFailed() throws ExecutionException {
+            lock.lock();
+            try {
+                if (firstFailure != null) throw new ExecutionException(firstFailure);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        // SHUTDOWN_ON_SUCCESS: result of the first subtask that succeeded
+        public T result() throws ExecutionException {
+            lock.lock();
+            try {
+                if (firstSuccess != null) return firstSuccess.get();
+                throw new ExecutionException("no subtask succeeded", firstFailure);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        public void shutdown() {
+            lock.lock();
+            try {
+                shutdownLocked();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void shutdownLocked() {
+            if (shutdown) return;
+            shutdown = true;
+            for (Subtask<? extends T> s : subtasks) if (s.state == Subtask.State.RUNNING) s.thread.interrupt();
+            changed.signalAll();
+        }
+
+        // Cancels what is still running and waits for every subtask thread to terminate: nothing outlives the scope.
+        @Override
+        public void close() {
+            checkOwner();
+            shutdown();
+            boolean interrupted = false;
+            for (Subtask<? extends T> s : subtasks) {
+                while (true) {
+                    try {
+                        s.thread.join();
+                        break;
+                    } catch (InterruptedException e) {
+                        interrupted = true; // keep waiting, then restore the flag
+                    }
+                }
+            }
+            DEADLINE.set(outerDeadline);
+            if (interrupted) Thread.currentThread().interrupt();
+        }
+
+        private void checkOwner() {
+            if (Thread.currentThread() != owner) throw new IllegalStateException("scope used outside its owner thread");
+        }
+    }
+
+    static final AtomicInteger activeSubtasks = new AtomicInteger();
+
+    static String call(String name, long millis, boolean fail) throws InterruptedException {
+        activeSubtasks.incrementAndGet();
+        try {
+            Thread.sleep(millis);
+            if (fail) throw new IllegalStateException(name + " failed");
+            return name;
+        } finally {
+            activeSubtasks.decrementAndGet();
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        // All must succeed: "inventory" fails after 20 ms, the 200 ms sibling is cancelled right away
+        long t0 = System.nanoTime();
+        try (Scope<String> scope = new Scope<>(Policy.SHUTDOWN_ON_FAILURE, Instant.now().plusSeconds(2))) {
+            Subtask<String> user = scope.fork(() -> call("user", 10, false));
+            Subtask<String> inventory = scope.fork(() -> call("inventory", 20, true));
+            Subtask<String> pricing = scope.fork(() -> call("pricing", 200, false));
+            scope.join().throwIfFailed();
+            System.out.println(user.get() + inventory.get() + pricing.get());
+        } catch (ExecutionException e) {
+            System.out.printf("failed after %d ms: %s (running subtasks now: %d)%n",
+                    (System.nanoTime() - t0) / 1_000_000, e.getCause().getMessage(), activeSubtasks.get());
+        }
+
+        // Any one is enough: a subtask of a request scope races two replicas; first to answer wins, and the nested
+        // scope inherits the request's 100 ms deadline
+        try (Scope<String> request = new Scope<>(Policy.SHUTDOWN_ON_FAILURE, Instant.now().plusMillis(100))) {
+            Subtask<String> lookup = request.fork(() -> {
+                try (Scope<String> replicas = new Scope<>(Policy.SHUTDOWN_ON_SUCCESS, Instant.now().plusSeconds(10))) {
+                    replicas.fork(() -> call("replica-a", 80, false));
+                    replicas.fork(() -> call("replica-b", 30, false));
+                    long remainingMs = currentDeadline().map(d -> d.toEpochMilli() - System.currentTimeMillis()).orElse(-1L);
+                    return "winner: " + replicas.join().result() + " (nested scope deadline: "
+                            + remainingMs + " ms left, inherited from the request scope instead of 10 s)";
+                }
+            });
+            request.join().throwIfFailed();
+            System.out.println(lookup.get());
+        }
+
+        // Comparison with Q34-style ExecutorService + Future.get for the same failing fan-out
+        int requests = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        long executorTotal = 0, structuredTotal = 0;
+        int executorLeftover = 0, structuredLeftover = 0;
+        for (int i = 0; i < requests; i++) {
+            long s = System.nanoTime();
+            List<Future<String>> fs = List.of(
+                    pool.submit(() -> call("user", 10, false)),
+                    pool.submit(() -> call("pricing", 200, false)),
+                    pool.submit(() -> call("inventory", 20, true)));
+            try {
+                for (Future<String> f : fs) f.get();
+            } catch (ExecutionException expected) {
+                // request failed
+            }
+            executorTotal += System.nanoTime() - s;
+            executorLeftover += activeSubtasks.get(); // siblings still burning threads after the request ended
+            while (activeSubtasks.get() > 0) Thread.sleep(1);
+
+            s = System.nanoTime();
+            try (Scope<String> scope = new Scope<>(Policy.SHUTDOWN_ON_FAILURE)) {
+                scope.fork(() -> call("user", 10, false));
+                scope.fork(() -> call("pricing", 200, false));
+                scope.fork(() -> call("inventory", 20, true));
+                scope.join().throwIfFailed();
+            } catch (ExecutionException expected) {
+                // request failed
+            }
+            structuredTotal += System.nanoTime() - s;
+            structuredLeftover += activeSubtasks.get();
+        }
+        pool.shutdown();
+        System.out.printf("ExecutorService + get : avg %3d ms per failing request, %d subtasks still running afterwards%n",
+                executorTotal / requests / 1_000_000, executorLeftover);
+        System.out.printf("Structured scope      : avg %3d ms per failing request, %d subtasks still running afterwards%n",
+                structuredTotal / requests / 1_000_000, structuredLeftover);
+    }
+}
@@ -0,0 +1,139 @@
+// Q71: Scaling virtual threads and detecting carrier pinning (builds on Q47, Q33, Q38)
+// Java example (requires Java 21 or later)
+//
+// Question: Q47 starts one virtual thread. How do virtual threads compare with a fixed platform pool (Q33) when
+// there are 10k-1M blocking tasks, and what is "pinning"?
+// Answer: a blocked virtual thread unmounts from its carrier, so N sleeping tasks cost N small heap-allocated
+// stacks instead of N OS threads; a fixed pool of P threads can only have P tasks blocked at once.
+// On JDK 21-23, blocking while holding a monitor (inside synchronized, like Q38) pins the virtual thread to its
+// carrier: the carrier cannot run other virtual threads until the block ends. The JVM reports this as the
+// JFR event jdk.VirtualThreadPinned (with the stack trace), which this example records and summarizes.
+//
+// Run:  java Q71_VirtualThreadScaling [tasks...]      (default: 10000 100000; try 1000000 with a larger heap)
+
+import jdk.jfr.consumer.*;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+public class Q71_VirtualThreadScaling {
+
+    static final Object LOCK = new Object();
+
+    // Simulated blocking I/O
+    static void io(long millis) {
+        try { Thread.sleep(millis); } catch (InterruptedException e) { Thread.currentThread().interrupt(); }
+    }
+
+    static long usedHeap() {
+        System.gc();
+        Runtime rt = Runtime.getRuntime();
+        return rt.totalMemory() - rt.freeMemory();
+    }
+
+    record Run(String name, int tasks, long startNanos, long totalNanos, long peakBytesPerTask) {
+        void print() {
+            System.out.printf(Locale.ROOT, "%-22s tasks=%,-9d submit=%,6d ms  total=%,7d ms  %,10.0f tasks/s  ~%,6d heap bytes/blocked task%n",
+                    name, tasks, startNanos / 1_000_000, totalNanos / 1_000_000, tasks / (totalNanos / 1e9), peakBytesPerTask);
+        }
+    }
+
+    // Submits `tasks` tasks that each block for ioMillis; measures submission time, total time and heap used
+    // while tasks are blocked (sampled half way through the sleep). Virtual thread stacks live on the heap, so
+    // this is their full footprint; platform threads additionally reserve a native stack (~1 MB) each.
+    static Run run(String name, ExecutorService exec, int tasks, long ioMillis) throws InterruptedException {
+        long before = usedHeap();
+        CountDownLatch done = new CountDownLatch(tasks);
+        long t0 = System.nanoTime();
+        for (int i = 0; i < tasks; i++) {
+            exec.execute(() -> {
+                io(ioMillis);
+                done.countDown();
+            });
+        }
+        long submitted = System.nanoTime() - t0;
+        Thread.sleep(ioMillis / 2);
+        long during = usedHeap();
+        done.await();
+        long total = System.nanoTime() - t0;
+        exec.shutdown();
+        return new Run(name, tasks, submitted, total, Math.max(0, during - before) / tasks);
+    }
+
+    // Records jdk.VirtualThreadPinned while `workload` runs and prints a summary grouped by top stack frames.
+    static void reportPinning(Runnable workload) throws Exception {
+        Map<String, AtomicLong> byStack = new ConcurrentHashMap<>();
+        AtomicLong events = new AtomicLong();
+        try (RecordingStream rs = new RecordingStream()) {
+            rs.enable("jdk.VirtualThreadPinned").withThreshold(Duration.ofMillis(5)).withStackTrace();
+            rs.onEvent("jdk.VirtualThreadPinned", e -> {
+                events.incrementAndGet();
+                StringBuilder sb = new StringBuilder();
+                RecordedStackTrace st = e.getStackTrace();
+                if (st != null) {
+                    List<RecordedFrame> frames = st.getFrames();
+                    int first = 0; // skip the JDK's own parking frames so the offending application frame comes first
+                    while (first < frames.size() - 1 && frames.get(first).getMethod().getType().getName().startsWith("java.")) first++;
+                    for (RecordedFrame f : frames.subList(first, Math.min(first + 4, frames.size()))) {
+                        sb.append("      at ").append(f.getMethod().getType().getName()).append('.')
+                          .append(f.getMethod().getName()).append(" line ").append(f.getLineNumber()).append('\n');
+                    }
+                }
+                byStack.computeIfAbsent(sb.toString(), k -> new AtomicLong()).incrementAndGet();
+            });
+            rs.startAsync();
+            workload.run();
+            Thread.sleep(1_500); // let the stream flush the last chunk
+        }
+        System.out.println("jdk.VirtualThreadPinned events: " + events.get());
+        byStack.entrySet().stream()
+                .sorted((a, b) -> Long.compare(b.getValue().get(), a.getValue().get()))
+                .limit(5)
+                .forEach(e -> System.out.print("  " + e.getValue().get() + " x pinned at\n" + e.getKey()));
+    }
+
+    public static void main(String[] args) throws Exception {
+        int[] sizes = args.length > 0 ? Arrays.stream(args).mapToInt(Integer::parseInt).toArray() : new int[]{10_000, 100_000};
+        int poolSize = 200;
+        long ioMillis = 1_000;
+        for (int tasks : sizes) {
+            run("virtual-per-task", Executors.newVirtualThreadPerTaskExecutor(), tasks, ioMillis).print();
+            // the platform pool needs tasks/poolSize sequential rounds, so keep its run short
+            int platformTasks = Math.min(tasks, poolSize * 10);
+            run("fixed(" + poolSize + ") platform", Executors.newFixedThreadPool(poolSize), platformTasks, ioMillis).print();
+        }
+
+        // Pinning: Q38-style synchronized block around blocking I/O, executed on virtual threads
+        System.out.println("=== blocking inside synchronized (pins the carrier on JDK 21-23) ===");
+        reportPinning(() -> {
+            try (ExecutorService exec = Executors.newVirtualThreadPerTaskExecutor()) {
+                for (int i = 0; i < 20; i++) {
+                    exec.execute(() -> {
+                        synchronized (LOCK) {
+                            io(20);
+                        }
+                    });
+                }
+            }
+        });
+        System.out.println("=== same work with a ReentrantLock (no pinning) ===");
+        ReentrantLock lock = new ReentrantLock();
+        reportPinning(() -> {
+            try (ExecutorService exec = Executors.newVirtualThreadPerTaskExecutor()) {
+                for (int i = 0; i < 20; i++) {
+                    exec.execute(() -> {
+                        lock.lock();
+                        try {
+                            io(20);
+                        } finally {
+                            lock.unlock();
+                        }
+                    });
+                }
+            }
+        });
+    }
+}
@@ -0,0 +1,383 @@
+// Q72: Hashed timing wheel as a drop-in ScheduledExecutorService (alternative to Q35)
+// Java example (requires Java 21 or later, uses Q57_ConcurrencyBenchmarks for the benchmark)
+//
+// Question: Q35 uses Executors.newScheduledThreadPool(1). What does each schedule()/cancel() cost there, and what
+// do you use for millions of short timeouts that are almost always cancelled?
+// Answer: ScheduledThreadPoolExecutor keeps tasks in a binary heap: O(log n) to insert and, with
+// setRemoveOnCancelPolicy(true), O(log n) to remove, all under one lock. (Without that policy, cancelled tasks
+// stay in the heap until their delay expires.) A hashed timing wheel is an array of buckets, one per tick;
+// a task goes into bucket (deadline / tick) % wheelSize with a "rounds" counter for deadlines further away than
+// one revolution. Schedule and cancel are O(1); the price is that deadlines are rounded up to the tick resolution.
+// A single ticker thread advances the wheel and hands expired tasks to a worker pool in batches.
+// Shutdown follows ScheduledThreadPoolExecutor's default policy: shutdown() cancels periodic tasks but still runs
+// delayed one-shot tasks when they are due; shutdownNow() cancels everything not yet started and returns it.
+//
+// Run:  java Q72_TimerWheelScheduler [warmupMs] [measureMs] [maxThreads]
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+public class Q72_TimerWheelScheduler {
+
+    public static final class TimerWheelScheduler extends AbstractExecutorService implements ScheduledExecutorService {
+        private static final int BATCH = 64;
+        private static final int RUNNING = 0, SHUTDOWN = 1, STOP = 2;
+
+        private final long tickNanos;
+        private final Bucket[] wheel;
+        private final int mask;
+        private final ExecutorService workers;
+        private final long startNanos = System.nanoTime();
+        private final Queue<WheelTask<?>> pending = new ConcurrentLinkedQueue<>();
+        private final Queue<WheelTask<?>> cancelled = new ConcurrentLinkedQueue<>();
+        private final Thread ticker;
+        private volatile int state = RUNNING;
+        private long tick;                          // ticker thread only
+        private long size;                          // tasks in wheel buckets; ticker thread only
+        private List<Runnable> unstarted = List.of(); // cancelled by shutdownNow; published by the ticker exiting
+
+        public TimerWheelScheduler(long tick, TimeUnit unit, int wheelSize, ExecutorService workers) {
+            this.tickNanos = unit.toNanos(tick);
+            int n = Integer.highestOneBit(Math.max(2, wheelSize - 1)) << 1;
+            this.wheel = new Bucket[n];
+            for (int i = 0; i < n; i++) wheel[i] = new Bucket();
+            this.mask = n - 1;
+            this.workers = workers;
+            this.ticker = Thread.ofPlatform().name("timer-wheel").daemon(true).start(this::runTicker);
+        }
+
+        // Doubly linked list of tasks; only touched by the ticker thread, so no locking.
+        private static final class Bucket {
+            WheelTask<?> head, tail;
+
+            void add(WheelTask<?> t) {
+                t.bucket = this;
+                if (head == null) {
+                    head = tail = t;
+                } else {
+                    tail.next = t;
+                    t.prev = tail;
+                    tail = t;
+                }
+            }
+
+            void remove(WheelTask<?> t) {
+                if (t.prev != null) t.prev.next = t.next; else head = t.next;
+                if (t.next != null) t.next.prev = t.prev; else tail = t.prev;
+                t.prev = t.next = null;
+                t.bucket = null;
+            }
+        }
+
+        final class WheelTask<V> extends FutureTask<V> implements RunnableScheduledFuture<V> {
+            long deadline;             // nanos since startNanos
+            final long period;         // 0 one-shot, > 0 fixed rate, < 0 fixed delay
+            long rounds;
+            WheelTask<?> prev, next;
+            Bucket bucket;
+
+            WheelTask(Callable<V> callable, long deadline) {
+                super(callable);
+                this.deadline = deadline;
+                this.period = 0;
+            }
+
+            WheelTask(Runnable r, long deadline, long period) {
+                super(r, null);
+                this.deadline = deadline;
+                this.period = period;
+            }
+
+            @Override public boolean isPeriodic() { return period != 0; }
+
+            @Override
+            public long getDelay(TimeUnit unit) {
+                return unit.convert(deadline - (System.nanoTime() - startNanos), TimeUnit.NANOSECONDS);
+            }
+
+            @Override
+            public int compareTo(Delayed o) {
+                return Long.compare(getDelay(TimeUnit.NANOSECONDS), o.getDelay(TimeUnit.NANOSECONDS));
+            }
+
+            @Override
+            public void run() {
+                if (!isPeriodic()) {
+                    super.run();
+                } else if (super.runAndReset() && state == RUNNING) {
+                    deadline = period > 0 ? after(deadline, period) : after(System.nanoTime() - startNanos, -period);
+                    pending.add(this);
+                    if (state != RUNNING && pending.remove(this)) cancel(false); // ticker may be gone already
+                } else if (!isDone()) {
+                    cancel(false); // periodic tasks end with shutdown
+                }
+            }
+
+            @Override
+            public boolean cancel(boolean mayInterruptIfRunning) {
+                boolean done = super.cancel(mayInterruptIfRunning);
+                if (done) cancelled.add(this); // unlinked by the ticker in O(1)
+                return done;
+            }
+        }
+
+        private <V> WheelTask<V> enqueue(WheelTask<V> t) {
+            if (state != RUNNING) throw new RejectedExecutionException("scheduler shut down");
+            pending.add(t);
+            // Re-check: a shutdown after the add is seen by the ticker's next transferPending(); one before it may
+            // already have let the ticker exit, so take the task back unless the ticker has claimed it.
+            if (state != RUNNING && pending.remove(t)) throw new RejectedExecutionException("scheduler shut down");
+            return t;
+        }
+
+        private long deadline(long delay, TimeUnit unit) {
+            return after(System.nanoTime() - startNanos, unit.toNanos(delay));
+        }
+
+        // from + delayNanos, capped so that rounding up to a tick cannot overflow: a huge delay (toNanos saturates
+        // at Long.MAX_VALUE) must not wrap around to a negative deadline and fire at once. Same idea as
+        // ScheduledThreadPoolExecutor.triggerTime.
+        private long after(long from, long delayNanos) {
+            return from + Math.min(Math.max(0, delayNanos), Long.MAX_VALUE - tickNanos - from);
+        }
+
+        @Override
+        public ScheduledFuture<?> schedule(Runnable command, long delay, TimeUnit unit) {
+            return enqueue(new WheelTask<>(command, deadline(delay, unit), 0));
+        }
+
+        @Override
+        public <V> ScheduledFuture<V> schedule(Callable<V> callable, long delay, TimeUnit unit) {
+            return enqueue(new WheelTask<>(callable, deadline(delay, unit)));
+        }
+
+        @Override
+        public ScheduledFuture<?> scheduleAtFixedRate(Runnable command, long initialDelay, long period, TimeUnit unit) {
+            if (period <= 0) throw new IllegalArgumentException("period must be > 0");
+            return enqueue(new WheelTask<>(command, deadline(initialDelay, unit), unit.toNanos(period)));
+        }
+
+        @Override
+        public ScheduledFuture<?> scheduleWithFixedDelay(Runnable command, long initialDelay, long delay, TimeUnit unit) {
+            if (delay <= 0) throw new IllegalArgumentException("delay must be > 0");
+            return enqueue(new WheelTask<>(command, deadline(initialDelay, unit), -unit.toNanos(delay)));
+        }
+
+        @Override
+        public void execute(Runnable command) {
+            if (state != RUNNING) throw new RejectedExecutionException("scheduler shut down");
+            workers.execute(command);
+        }
+
+        private void runTicker() {
+            List<Runnable> expired = new ArrayList<>(BATCH);
+            boolean periodicCancelled = false;
+            while (true) {
+                int s = state;
+                if (s == STOP) break;
+                if (s == SHUTDOWN) {
+                    unlinkCancelled();
+                    transferPending();
+                    if (!periodicCancelled) {
+                        cancelAll(true);
+                        periodicCancelled = true;
+                    }
+                    if (size == 0) break; // every delayed task has run
+                }
+                long wakeAt = (tick + 1) * tickNanos;
+                long sleep;
+                while ((sleep = wakeAt - (System.nanoTime() - startNanos)) > 0 && state == s) {
+                    LockSupport.parkNanos(sleep);
+                }
+                if (sleep > 0) continue; // woken by a state change, the tick is not due yet
+                unlinkCancelled();
+                transferPending();
+                Bucket b = wheel[(int) (tick & mask)];
+                for (WheelTask<?> t = b.head; t != null; ) {
+                    WheelTask<?> next = t.next;
+                    if (t.isCancelled()) {
+                        remove(b, t);
+                    } else if (t.rounds <= 0) {
+                        remove(b, t);
+                        expired.add(t);
+                        if (expired.size() == BATCH) dispatch(expired);
+                    } else {
+                        t.rounds--;
+                    }
+                    t = next;
+                }
+                if (!expired.isEmpty()) dispatch(expired);
+                tick++;
+            }
+            unlinkCancelled();
+            transferPending();
+            unstarted = cancelAll(false);
+            workers.shutdown(); // after the last dispatch, so delayed tasks due during shutdown() still run
+        }
+
+        private void remove(Bucket b, WheelTask<?> t) {
+            b.remove(t);
+            size--;
+        }
+
+        // Removes and cancels the periodic (or all) tasks still in the wheel, returning the ones it cancelled
+        private List<Runnable> cancelAll(boolean periodicOnly) {
+            List<Runnable> cancelledTasks = new ArrayList<>();
+            for (Bucket b : wheel) {
+                for (WheelTask<?> t = b.head; t != null; ) {
+                    WheelTask<?> next = t.next;
+                    if (!periodicOnly || t.isPeriodic()) {
+                        remove(b, t);
+                        if (t.cancel(false)) cancelledTasks.add(t);
+                    }
+                    t = next;
+                }
+            }
+            return cancelledTasks;
+        }
+
+        private void dispatch(List<Runnable> expired) {
+            Batch batch = new Batch(expired.toArray(new Runnable[0]));
+            expired.clear();
+            try {
+                workers.execute(batch);
+            } catch (RejectedExecutionException e) {
+                for (Runnable r : batch.tasks()) ((Future<?>) r).cancel(false);
+            }
+        }
+
+        private record Batch(Runnable[] tasks) implements Runnable {
+            @Override public void run() { for (Runnable r : tasks) r.run(); }
+        }
+
+        private void transferPending() {
+            WheelTask<?> t;
+            while ((t = pending.poll()) != null) {
+                if (t.isCancelled()) continue;
+                if (t.isPeriodic() && state != RUNNING) {
+                    t.cancel(false);
+                    continue;
+                }
+                long ticks = Math.max((t.deadline + tickNanos - 1) / tickNanos, tick); // round up, never in the past
+                t.rounds = (ticks - tick) / wheel.length;
+                wheel[(int) (ticks & mask)].add(t);
+                size++;
+            }
+        }
+
+        private void unlinkCancelled() {
+            WheelTask<?> t;
+            while ((t = cancelled.poll()) != null) {
+                if (t.bucket != null) remove(t.bucket, t);
+            }
+        }
+
+        // Periodic tasks are cancelled, delayed tasks still run when due; the worker pool is shut down after them
+        @Override
+        public void shutdown() {
+            advanceState(SHUTDOWN);
+        }
+
+        // Cancels every task that has not started yet and returns those tasks (plus the worker pool's queue)
+        @Override
+        public List<Runnable> shutdownNow() {
+            advanceState(STOP);
+            boolean interrupted = false;
+            while (ticker.isAlive()) {
+                try {
+                    ticker.join();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) Thread.currentThread().interrupt();
+            List<Runnable> notRun = new ArrayList<>(unstarted);
+            for (Runnable r : workers.shutdownNow()) {
+                if (r instanceof Batch batch) {
+                    for (Runnable t : batch.tasks()) if (((Future<?>) t).cancel(false)) notRun.add(t);
+                } else {
+                    notRun.add(r);
+                }
+            }
+            return notRun;
+        }
+
+        private synchronized void advanceState(int target) {
+            if (state < target) state = target;
+            LockSupport.unpark(ticker);
+        }
+
+        @Override public boolean isShutdown() { return state != RUNNING; }
+
+        @Override public boolean isTerminated() { return state != RUNNING && !ticker.isAlive() && workers.isTerminated(); }
+
+        @Override
+        public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+            long deadline = System.nanoTime() + unit.toNanos(timeout);
+            ticker.join(Math.max(1, unit.toMillis(timeout)));
+            return workers.awaitTermination(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        // Q35 with the timing wheel: same ScheduledExecutorService API
+        ScheduledExecutorService scheduler = new TimerWheelScheduler(1, TimeUnit.MILLISECONDS, 512,
+                Executors.newFixedThreadPool(2));
+        long t0 = System.nanoTime();
+        ScheduledFuture<?> future = scheduler.schedule(
+                () -> System.out.println("Scheduled executed after " + (System.nanoTime() - t0) / 1_000_000 + " ms"),
+                500, TimeUnit.MILLISECONDS);
+        future.get();
+        // An effectively infinite delay must not overflow into the past and fire at once
+        ScheduledFuture<?> forever = scheduler.schedule(() -> System.out.println("fired: delay overflowed"), Long.MAX_VALUE, TimeUnit.DAYS);
+        Thread.sleep(20);
+        System.out.println("Long.MAX_VALUE days: done=" + forever.isDone() + ", delay > 0: " + (forever.getDelay(TimeUnit.DAYS) > 0));
+        forever.cancel(false);
+        AtomicLong ticks = new AtomicLong();
+        ScheduledFuture<?> periodic = scheduler.scheduleAtFixedRate(ticks::incrementAndGet, 0, 10, TimeUnit.MILLISECONDS);
+        Thread.sleep(205);
+        periodic.cancel(false);
+        System.out.println("fixed-rate runs in ~200 ms at 10 ms period: " + ticks.get());
+        // shutdown(): delayed tasks still run, periodic ones are cancelled; shutdownNow(): nothing left hangs
+        ScheduledFuture<String> delayed = scheduler.schedule(() -> "ran after shutdown", 100, TimeUnit.MILLISECONDS);
+        ScheduledFuture<?> repeating = scheduler.scheduleAtFixedRate(ticks::incrementAndGet, 0, 10, TimeUnit.MILLISECONDS);
+        scheduler.shutdown();
+        System.out.println(delayed.get(1, TimeUnit.SECONDS) + ", periodic cancelled: " + repeating.isCancelled());
+        scheduler.awaitTermination(1, TimeUnit.SECONDS);
+        ScheduledExecutorService stopped = new TimerWheelScheduler(1, TimeUnit.MILLISECONDS, 512, Executors.newFixedThreadPool(1));
+        ScheduledFuture<?> never = stopped.schedule(() -> { }, 1, TimeUnit.HOURS);
+        List<Runnable> notRun = stopped.shutdownNow();
+        System.out.println("shutdownNow returned " + notRun.size() + " task, cancelled: " + never.isCancelled()
+                + ", terminated: " + stopped.awaitTermination(1, TimeUnit.SECONDS));
+
+        // Schedule-then-cancel churn (e.g. request timeouts that almost never fire)
+        long warmup = args.length > 0 ? Long.parseLong(args[0]) : 300;
+        long measure = args.length > 1 ? Long.parseLong(args[1]) : 1000;
+        int maxThreads = args.length > 2 ? Integer.parseInt(args[2]) : Math.max(2, Runtime.getRuntime().availableProcessors());
+        Q57_ConcurrencyBenchmarks.Harness h = new Q57_ConcurrencyBenchmarks.Harness(warmup, measure);
+        Runnable noop = () -> { };
+        for (int threads : Q57_ConcurrencyBenchmarks.threadCounts(maxThreads)) {
+            ScheduledThreadPoolExecutor stpe = new ScheduledThreadPoolExecutor(1);
+            stpe.setRemoveOnCancelPolicy(true);
+            h.run("Q72.stpe.removeOnCancel", Q57_ConcurrencyBenchmarks.params("delayMs", 30_000), threads,
+                    t -> stpe.schedule(noop, 30, TimeUnit.SECONDS).cancel(false));
+            stpe.shutdownNow();
+
+            // pre-fill with long-lived timers so the heap has realistic depth
+            ScheduledThreadPoolExecutor deep = new ScheduledThreadPoolExecutor(1);
+            deep.setRemoveOnCancelPolicy(true);
+            for (int i = 0; i < 100_000; i++) deep.schedule(noop, 1, TimeUnit.HOURS);
+            h.run("Q72.stpe.100kLive", Q57_ConcurrencyBenchmarks.params("delayMs", 30_000), threads,
+                    t -> deep.schedule(noop, 30, TimeUnit.SECONDS).cancel(false));
+            deep.shutdownNow();
+
+            TimerWheelScheduler wheel = new TimerWheelScheduler(1, TimeUnit.MILLISECONDS, 4096, Executors.newFixedThreadPool(2));
+            for (int i = 0; i < 100_000; i++) wheel.schedule(noop, 1, TimeUnit.HOURS);
+            h.run("Q72.timerWheel.100kLive", Q57_ConcurrencyBenchmarks.params("delayMs", 30_000), threads,
+                    t -> wheel.schedule(noop, 30, TimeUnit.SECONDS).cancel(false));
+            wheel.shutdownNow();
+        }
+    }
+}
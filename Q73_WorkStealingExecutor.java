@@ -0,0 +1,561 @@
+// Q73: Work-stealing ExecutorService with per-worker deques (alternative to the fixed pools in Q33, Q34, Q36)
+// Java example (requires Java 21 or later, uses Q57_ConcurrencyBenchmarks for the benchmark)
+//
+// Question: newFixedThreadPool works fine for a few 100 ms tasks. What goes wrong with millions of tiny tasks?
+// Answer: every submit and every take goes through the one LinkedBlockingQueue (two locks, one node allocated per
+// task), and submit() additionally wraps each task in a FutureTask. With per-worker deques:
+//  - a task submitted from a worker thread goes to that worker's own deque: no lock, no CAS, no node,
+//  - the owner takes from the top (LIFO, cache-warm), idle workers steal from the bottom (FIFO) with one CAS,
+//  - external submitters go to a few shared submission deques, and executeAll() pushes a whole batch under one
+//    short CAS-guarded section and wakes only as many workers as needed,
+//  - execute() enqueues the Runnable itself; submit() uses a small one-object future instead of FutureTask.
+// This is a simplified version of what ForkJoinPool does internally.
+//
+// Run:  java Q73_WorkStealingExecutor [tasks] [warmupMs] [measureMs] [maxThreads]
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.lang.management.ManagementFactory;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import java.util.concurrent.locks.LockSupport;
+
+public class Q73_WorkStealingExecutor {
+
+    // Chase-Lev deque with a fixed capacity: the owner pushes/pops at `top`, thieves take from `base` with a CAS.
+    // Fields are volatile so the pop/steal race on the last element is ordered correctly.
+    static final class Deque {
+        private static final VarHandle BASE, SLOTS = MethodHandles.arrayElementVarHandle(Runnable[].class);
+        static {
+            try {
+                BASE = MethodHandles.lookup().findVarHandle(Deque.class, "base", long.class);
+            } catch (ReflectiveOperationException e) {
+                throw new ExceptionInInitializerError(e);
+            }
+        }
+
+        private final Runnable[] slots;
+        private final int mask;
+        private volatile long base, top;
+        private final AtomicBoolean pushLock = new AtomicBoolean(); // only used for shared submission deques
+
+        Deque(int capacity) {
+            slots = new Runnable[capacity];
+            mask = capacity - 1;
+        }
+
+        // Owner only. Returns false when full.
+        boolean push(Runnable task) {
+            long t = top;
+            if (t - base > mask) return false;
+            SLOTS.setRelease(slots, (int) t & mask, task);
+            top = t + 1;
+            return true;
+        }
+
+        // Owner only, LIFO
+        Runnable pop() {
+            long t = top - 1;
+            top = t;
+            long b = base;
+            if (b > t) {
+                top = b;
+                return null;
+            }
+            int i = (int) t & mask;
+            Runnable task = (Runnable) SLOTS.getAcquire(slots, i);
+            if (b < t) {
+                slots[i] = null;
+                return task;
+            }
+            // last element: race against thieves for it
+            if (!BASE.compareAndSet(this, b, b + 1)) task = null;
+            top = b + 1;
+            return task;
+        }
+
+        // Any thread, FIFO. A stolen slot is not cleared (the owner may already reuse it), so up to `capacity`
+        // finished tasks can stay reachable until overwritten.
+        Runnable steal() {
+            while (true) {
+                long b = base, t = top;
+                if (b >= t) return null;
+                Runnable task = (Runnable) SLOTS.getAcquire(slots, (int) b & mask);
+                if (BASE.compareAndSet(this, b, b + 1)) return task;
+            }
+        }
+
+        // Shared submission deque: pushers serialize on a CAS flag, held only for the array stores
+        int pushAll(Runnable[] tasks, int from, int to) {
+            while (!pushLock.compareAndSet(false, true)) Thread.onSpinWait();
+            try {
+                int i = from;
+                while (i < to && push(tasks[i])) i++;
+                return i - from;
+            } finally {
+                pushLock.set(false);
+            }
+        }
+
+        boolean pushShared(Runnable task) {
+            while (!pushLock.compareAndSet(false, true)) Thread.onSpinWait();
+            try {
+                return push(task);
+            } finally {
+                pushLock.set(false);
+            }
+        }
+
+        boolean isEmpty() { return base >= top; }
+    }
+
+    // One-object future for submit(): no FutureTask, no Executors.callable adapter for Runnables.
+    // Waiters block on the monitor, which is only touched when someone actually called get().
+    static final class LightFuture<V> implements RunnableFuture<V> {
+        private static final int NEW = 0, RUNNING = 1, DONE = 2, FAILED = 3, CANCELLED = 4;
+        private static final VarHandle STATE;
+        static {
+            try {
+                STATE = MethodHandles.lookup().findVarHandle(LightFuture.class, "state", int.class);
+            } catch (ReflectiveOperationException e) {
+                throw new ExceptionInInitializerError(e);
+            }
+        }
+
+        private final Callable<V> callable;
+        private final Runnable runnable;
+        private final V value;
+        private volatile int state;
+        private volatile int waiters;
+        private Object outcome;
+
+        LightFuture(Callable<V> callable) {
+            this.callable = callable;
+            this.runnable = null;
+            this.value = null;
+        }
+
+        LightFuture(Runnable runnable, V value) {
+            this.callable = null;
+            this.runnable = runnable;
+            this.value = value;
+        }
+
+        @Override
+        public void run() {
+            if (!STATE.compareAndSet(this, NEW, RUNNING)) return;
+            try {
+                if (callable != null) {
+                    outcome = callable.call();
+                } else {
+                    runnable.run();
+                    outcome = value;
+                }
+                finish(DONE);
+            } catch (Throwable t) {
+                outcome = t;
+                finish(FAILED);
+            }
+        }
+
+        private void finish(int s) {
+            state = s;
+            if (waiters != 0) {
+                synchronized (this) { notifyAll(); }
+            }
+        }
+
+        // Only a task that has not started yet can be cancelled
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            if (!STATE.compareAndSet(this, NEW, CANCELLED)) return false;
+            finish(CANCELLED);
+            return true;
+        }
+
+        @Override public boolean isCancelled() { return state == CANCELLED; }
+
+        @Override public boolean isDone() { return state >= DONE; }
+
+        @Override
+        public V get() throws InterruptedException, ExecutionException {
+            if (state < DONE) {
+                synchronized (this) {
+                    waiters++;
+                    try {
+                        while (state < DONE) wait();
+                    } finally {
+                        waiters--;
+                    }
+                }
+            }
+            return report();
+        }
+
+        @Override
+        public V get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+            if (state < DONE) {
+                long deadline = System.nanoTime() + unit.toNanos(timeout);
+                synchronized (this) {
+                    waiters++;
+                    try {
+                        long left;
+                        while (state < DONE) {
+                            if ((left = deadline - System.nanoTime()) <= 0) throw new TimeoutException();
+                            TimeUnit.NANOSECONDS.timedWait(this, left);
+                        }
+                    } finally {
+                        waiters--;
+                    }
+                }
+            }
+            return report();
+        }
+
+        @SuppressWarnings("unchecked")
+        private V report() throws ExecutionException {
+            return switch (state) {
+                case DONE -> (V) outcome;
+                case FAILED -> throw new ExecutionException((Throwable) outcome);
+                default -> throw new CancellationException();
+            };
+        }
+    }
+
+    public static final class WorkStealingExecutor extends AbstractExecutorService {
+        private static final int CAPACITY = 1 << 13;
+
+        private final Worker[] workers;
+        private final Deque[] submissions;
+        private final AtomicInteger idle = new AtomicInteger();
+        private final LongAdder steals = new LongAdder();
+        private volatile boolean shutdown, stop;
+
+        public WorkStealingExecutor(int parallelism) {
+            workers = new Worker[parallelism];
+            submissions = new Deque[Integer.highestOneBit(Math.max(1, parallelism - 1)) << 1];
+            for (int i = 0; i < submissions.length; i++) submissions[i] = new Deque(CAPACITY);
+            for (int i = 0; i < parallelism; i++) workers[i] = new Worker(i);
+            for (Worker w : workers) w.start();
+        }
+
+        final class Worker extends Thread {
+            final Deque local = new Deque(CAPACITY);
+            volatile boolean parked;
+            int seed;
+
+            Worker(int index) {
+                super("ws-worker-" + index);
+                setDaemon(true);
+                seed = index * 0x9E3779B9 | 1;
+            }
+
+            WorkStealingExecutor pool() { return WorkStealingExecutor.this; }
+
+            @Override
+            public void run() {
+                while (!stop) {
+                    Runnable task = local.pop();
+                    if (task == null) task = scan();
+                    if (task == null) task = awaitWork();
+                    if (task == null) break;
+                    try {
+                        task.run();
+                    } catch (Throwable t) {
+                        System.err.println(getName() + ": task failed: " + t); // worker survives, like execute() on a pool
+                    }
+                }
+            }
+
+            // Steal from submission deques and other workers, starting at a random victim
+            Runnable scan() {
+                seed ^= seed << 13; seed ^= seed >>> 17; seed ^= seed << 5;
+                int n = submissions.length;
+                for (int k = 0, start = seed & (n - 1); k < n; k++) {
+                    Runnable task = submissions[(start + k) & (n - 1)].steal();
+                    if (task != null) return task;
+                }
+                int m = workers.length;
+                for (int k = 0, start = (seed >>> 1) % m; k < m; k++) {
+                    Worker victim = workers[(start + k) % m];
+                    if (victim == this) continue;
+                    Runnable task = victim.local.steal();
+                    if (task != null) {
+                        steals.increment();
+                        return task;
+                    }
+                }
+                return null;
+            }
+
+            // Announce idleness, then re-scan before parking: a submitter that pushes after the scan sees
+            // parked == true and unparks us. Returns null only when the pool is shut down and drained.
+            Runnable awaitWork() {
+                idle.incrementAndGet();
+                try {
+                    while (true) {
+                        parked = true;
+                        Runnable task = scan();
+                        if (task != null) return task;
+                        if (shutdown && quiescent()) return null;
+                        LockSupport.park(this);
+                        if (stop) return null;
+                    }
+                } finally {
+                    parked = false;
+                    idle.decrementAndGet();
+                }
+            }
+        }
+
+        private boolean quiescent() {
+            for (Deque d : submissions) if (!d.isEmpty()) return false;
+            for (Worker w : workers) if (!w.local.isEmpty()) return false;
+            return true;
+        }
+
+        private void signal(int n) {
+            for (int i = 0; i < workers.length && n > 0 && idle.get() > 0; i++) {
+                Worker w = workers[i];
+                if (w.parked) {
+                    w.parked = false;
+                    LockSupport.unpark(w);
+                    n--;
+                }
+            }
+        }
+
+        @Override
+        public void execute(Runnable task) {
+            Objects.requireNonNull(task);
+            if (shutdown) throw new RejectedExecutionException("executor shut down");
+            if (Thread.currentThread() instanceof Worker w && w.pool() == this && w.local.push(task)) {
+                if (idle.get() > 0) signal(1);
+                return;
+            }
+            int n = submissions.length, start = (int) Thread.currentThread().threadId() & (n - 1);
+            for (int k = 0; k < n; k++) {
+                if (submissions[(start + k) & (n - 1)].pushShared(task)) {
+                    if (idle.get() > 0) signal(1);
+                    drainIfShutDown();
+                    return;
+                }
+            }
+            task.run(); // all submission deques full: caller runs
+        }
+
+        // Batch submit: one CAS-guarded section per submission deque instead of one per task. If every deque is
+        // full, the caller runs the rest itself (backpressure, like CallerRunsPolicy).
+        public void executeAll(Runnable[] tasks) {
+            if (shutdown) throw new RejectedExecutionException("executor shut down");
+            int from = 0, n = submissions.length;
+            int start = (int) Thread.currentThread().threadId() & (n - 1);
+            for (int k = 0; k < n && from < tasks.length; k++) {
+                int pushed = submissions[(start + k) & (n - 1)].pushAll(tasks, from, tasks.length);
+                from += pushed;
+                if (pushed > 0 && idle.get() > 0) signal(pushed);
+            }
+            drainIfShutDown();
+            for (; from < tasks.length; from++) tasks[from].run();
+        }
+
+        // The shutdown check and the push are not atomic: workers may have seen shutdown with empty deques and
+        // exited just before the push. Since `top` is volatile, a submitter whose push they missed is guaranteed
+        // to see shutdown here, and then runs what is left in the submission deques itself (caller-runs).
+        // Tasks pushed by a worker to its own deque need no such check: a live worker drains it before exiting.
+        private void drainIfShutDown() {
+            if (!shutdown) return;
+            Runnable task;
+            for (Deque d : submissions) {
+                while ((task = d.steal()) != null) {
+                    try {
+                        task.run();
+                    } catch (Throwable t) {
+                        System.err.println(Thread.currentThread().getName() + ": task failed: " + t);
+                    }
+                }
+            }
+        }
+
+        @Override
+        protected <T> RunnableFuture<T> newTaskFor(Runnable runnable, T value) {
+            return new LightFuture<>(runnable, value);
+        }
+
+        @Override
+        protected <T> RunnableFuture<T> newTaskFor(Callable<T> callable) {
+            return new LightFuture<>(callable);
+        }
+
+        public long steals() { return steals.sum(); }
+
+        // Queued tasks still run; workers exit once all deques are empty
+        @Override
+        public void shutdown() {
+            shutdown = true;
+            for (Worker w : workers) LockSupport.unpark(w);
+        }
+
+        @Override
+        public List<Runnable> shutdownNow() {
+            shutdown = true;
+            stop = true;
+            for (Worker w : workers) w.interrupt();
+            List<Runnable> notRun = new ArrayList<>();
+            Runnable task;
+            for (Deque d : submissions) while ((task = d.steal()) != null) notRun.add(task);
+            for (Worker w : workers) while ((task = w.local.steal()) != null) notRun.add(task);
+            return notRun;
+        }
+
+        @Override public boolean isShutdown() { return shutdown; }
+
+        @Override
+        public boolean isTerminated() {
+            for (Worker w : workers) if (w.isAlive()) return false;
+            return shutdown;
+        }
+
+        @Override
+        public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+            long deadline = System.nanoTime() + unit.toNanos(timeout);
+            for (Worker w : workers) {
+                long left = deadline - System.nanoTime();
+                if (left <= 0) return isTerminated();
+                w.join(Math.max(1, TimeUnit.NANOSECONDS.toMillis(left)));
+            }
+            return isTerminated();
+        }
+    }
+
+    static long allocatedBytes() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean()).getTotalThreadAllocatedBytes();
+    }
+
+    // Counts completions down to zero; the executor under test is the only shared structure that differs
+    static final class Countdown {
+        final AtomicLong remaining;
+        final CountDownLatch done = new CountDownLatch(1);
+
+        Countdown(long n) { remaining = new AtomicLong(n); }
+
+        void completed() { if (remaining.decrementAndGet() == 0) done.countDown(); }
+    }
+
+    // Each microtask does a little work and, above depth 0, forks two children from inside the pool
+    static void tree(ExecutorService exec, int depth, Countdown c) {
+        Q57_ConcurrencyBenchmarks.Blackhole.consume(Q57_ConcurrencyBenchmarks.work(20));
+        if (depth > 0) {
+            exec.execute(() -> tree(exec, depth - 1, c));
+            exec.execute(() -> tree(exec, depth - 1, c));
+        }
+        c.completed();
+    }
+
+    // Submits `tasks` microtasks from this thread (in batches of `batch` if the executor supports it) and
+    // reports submission rate, time to the last completion and bytes allocated per task across all threads.
+    static void flood(String name, ExecutorService exec, int tasks, int batch, boolean report) throws InterruptedException {
+        Countdown c = new Countdown(tasks);
+        Runnable task = () -> {
+            Q57_ConcurrencyBenchmarks.Blackhole.consume(Q57_ConcurrencyBenchmarks.work(20));
+            c.completed();
+        };
+        long a0 = allocatedBytes(), t0 = System.nanoTime();
+        if (batch > 1 && exec instanceof WorkStealingExecutor ws) {
+            Runnable[] chunk = new Runnable[batch];
+            Arrays.fill(chunk, task);
+            for (int i = 0; i < tasks; i += batch) {
+                ws.executeAll(i + batch <= tasks ? chunk : Arrays.copyOf(chunk, tasks - i));
+            }
+        } else {
+            for (int i = 0; i < tasks; i++) exec.execute(task);
+        }
+        long submitted = System.nanoTime() - t0;
+        c.done.await();
+        long total = System.nanoTime() - t0;
+        long bytes = allocatedBytes() - a0;
+        if (report) System.out.printf(Locale.ROOT, "%-28s flat tasks=%,d  submit %,12.0f tasks/s  complete %,12.0f tasks/s  %,6.1f bytes/task%n",
+                name, tasks, tasks / (submitted / 1e9), tasks / (total / 1e9), (double) bytes / tasks);
+    }
+
+    static void forkTree(String name, ExecutorService exec, int depth, boolean report) throws InterruptedException {
+        int nodes = (1 << (depth + 1)) - 1;
+        Countdown c = new Countdown(nodes);
+        long a0 = allocatedBytes(), t0 = System.nanoTime();
+        exec.execute(() -> tree(exec, depth, c));
+        c.done.await();
+        long total = System.nanoTime() - t0;
+        if (report) System.out.printf(Locale.ROOT, "%-28s tree tasks=%,d  complete %,12.0f tasks/s  %,6.1f bytes/task%s%n",
+                name, nodes, nodes / (total / 1e9), (double) (allocatedBytes() - a0) / nodes,
+                exec instanceof WorkStealingExecutor ws ? "  steals=" + ws.steals() : "");
+    }
+
+    public static void main(String[] args) throws Exception {
+        int tasks = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        long warmup = args.length > 1 ? Long.parseLong(args[1]) : 300;
+        long measure = args.length > 2 ? Long.parseLong(args[2]) : 1000;
+        int maxThreads = args.length > 3 ? Integer.parseInt(args[3]) : Math.max(2, Runtime.getRuntime().availableProcessors());
+        int cores = Math.max(2, Runtime.getRuntime().availableProcessors());
+
+        // Q33/Q36 unchanged on the new executor
+        try (ExecutorService exec = new WorkStealingExecutor(2)) {
+            Future<Integer> f = exec.submit(() -> {
+                Thread.sleep(100);
+                return 42;
+            });
+            Future<?> fr = exec.submit(() -> System.out.println("Runnable executed"));
+            System.out.println("Result: " + f.get()); // 42
+            fr.get();
+        }
+
+        // Submissions racing with shutdown(): every accepted task completes, none is stranded in a deque
+        for (int round = 0; round < 200; round++) {
+            WorkStealingExecutor exec = new WorkStealingExecutor(2);
+            List<Future<?>> accepted = Collections.synchronizedList(new ArrayList<>());
+            Thread submitter = Thread.ofPlatform().start(() -> {
+                try {
+                    while (true) accepted.add(exec.submit(() -> { }));
+                } catch (RejectedExecutionException expected) {
+                    // shut down
+                }
+            });
+            Thread.sleep(1);
+            exec.shutdown();
+            submitter.join();
+            for (Future<?> f : accepted) f.get(5, TimeUnit.SECONDS); // TimeoutException would mean a lost task
+        }
+        System.out.println("200 shutdown races: all accepted tasks completed");
+
+        for (int round = 0; round < 2; round++) { // first round warms up the JIT
+            if (round == 1) System.out.println("=== microtasks: submission rate, completion rate, allocation ===");
+            int n = round == 0 ? tasks / 10 : tasks;
+            List<Map.Entry<String, ExecutorService>> pools = List.of(
+                    Map.entry("fixedThreadPool(" + cores + ")", Executors.newFixedThreadPool(cores)),
+                    Map.entry("ForkJoinPool(" + cores + ")", new ForkJoinPool(cores)),
+                    Map.entry("WorkStealing(" + cores + ")", new WorkStealingExecutor(cores)));
+            for (Map.Entry<String, ExecutorService> p : pools) {
+                flood(p.getKey(), p.getValue(), n, 1, round == 1);
+                if (p.getValue() instanceof WorkStealingExecutor) flood(p.getKey() + " batch=64", p.getValue(), n, 64, round == 1);
+                forkTree(p.getKey(), p.getValue(), round == 0 ? 16 : 19, round == 1);
+                p.getValue().shutdown();
+                p.getValue().awaitTermination(10, TimeUnit.SECONDS);
+            }
+        }
+
+        // Completion latency: submit one microtask and wait for it, from 1..maxThreads callers
+        System.out.println("=== completion latency: submit(task).get() ===");
+        Q57_ConcurrencyBenchmarks.Harness h = new Q57_ConcurrencyBenchmarks.Harness(warmup, measure);
+        Callable<Long> micro = () -> Q57_ConcurrencyBenchmarks.work(20);
+        for (int threads : Q57_ConcurrencyBenchmarks.threadCounts(maxThreads)) {
+            ExecutorService fixed = Executors.newFixedThreadPool(cores);
+            h.run("Q73.fixedThreadPool.submitGet", Q57_ConcurrencyBenchmarks.params("workers", cores), threads,
+                    t -> h.consume(t, fixed.submit(micro).get()));
+            fixed.shutdown();
+            WorkStealingExecutor ws = new WorkStealingExecutor(cores);
+            h.run("Q73.workStealing.submitGet", Q57_ConcurrencyBenchmarks.params("workers", cores), threads,
+                    t -> h.consume(t, ws.submit(micro).get()));
+            ws.shutdown();
+        }
+    }
+}
@@ -0,0 +1,251 @@
+// Q74: Background worker that parks instead of polling, with drain-on-shutdown (replaces the loop in Q40)
+// Java example (requires Java 8 or later)
+//
+// Question: Q40's worker wakes up every 200 ms whether or not there is anything to do. What is wrong with that for
+// a background flusher, and how should such a thread be written?
+// Answer: a polling sleep costs a wakeup per period while idle, adds up to one period of lag to every item, and
+// at exit the thread is either killed mid-batch (daemon) or keeps the JVM alive (non-daemon, as in Q40).
+// Instead the worker parks until it is signalled or its next deadline (e.g. a periodic flush) is due.
+// Signals that arrive while it is busy or already awake coalesce into one wakeup, so a burst of 10k items
+// costs one unpark, not 10k. The thread is a daemon, and a shutdown hook stops it and lets it drain the
+// remaining work before the JVM exits, bounded by a deadline so a stuck sink cannot hang the shutdown.
+//
+// Run:  java Q74_BackgroundWorker
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import java.util.concurrent.locks.LockSupport;
+
+public class Q74_BackgroundWorker {
+
+    public static final class BackgroundWorker implements AutoCloseable {
+
+        // Does one batch of work. Returns true if more is pending, so the worker calls it again without parking.
+        // `draining` is true during shutdown: finish what is queued, accept nothing new.
+        public interface Work {
+            boolean process(boolean draining) throws Exception;
+        }
+
+        public static final class Stats {
+            public final long signals, wakeups, runs, failures, maxLagNanos, avgLagNanos;
+
+            Stats(long signals, long wakeups, long runs, long failures, long maxLagNanos, long avgLagNanos) {
+                this.signals = signals;
+                this.wakeups = wakeups;
+                this.runs = runs;
+                this.failures = failures;
+                this.maxLagNanos = maxLagNanos;
+                this.avgLagNanos = avgLagNanos;
+            }
+
+            @Override
+            public String toString() {
+                return String.format(Locale.ROOT, "signals=%,d wakeups=%,d runs=%,d failures=%d lag avg=%,d us max=%,d us",
+                        signals, wakeups, runs, failures, avgLagNanos / 1000, maxLagNanos / 1000);
+            }
+        }
+
+        private final Work work;
+        private final long intervalNanos; // 0: run only when signalled
+        private final Thread thread;
+        private final AtomicLong pendingSince = new AtomicLong(); // 0 = no signal pending, else time of first signal
+        private final LongAdder signals = new LongAdder();
+        private final AtomicLong wakeups = new AtomicLong(), runs = new AtomicLong(), failures = new AtomicLong();
+        private final AtomicLong lagSamples = new AtomicLong(), lagTotal = new AtomicLong(), lagMax = new AtomicLong();
+        private volatile boolean stopping;
+        private volatile long drainDeadline;
+        private Thread hook;
+
+        public BackgroundWorker(String name, long interval, TimeUnit unit, Work work) {
+            this.work = work;
+            this.intervalNanos = unit.toNanos(interval);
+            this.thread = new Thread(this::loop, name);
+            thread.setDaemon(true); // never keeps the JVM alive; the shutdown hook does the draining
+        }
+
+        public BackgroundWorker start() {
+            thread.start();
+            return this;
+        }
+
+        // Stops the worker and drains the remaining work from a shutdown hook, for at most `timeout`
+        public BackgroundWorker installShutdownHook(long timeout, TimeUnit unit) {
+            hook = new Thread(() -> {
+                if (!close(timeout, unit)) {
+                    System.err.println(thread.getName() + ": drain did not finish within " + unit.toMillis(timeout) + " ms");
+                }
+            }, thread.getName() + "-shutdown");
+            Runtime.getRuntime().addShutdownHook(hook);
+            return this;
+        }
+
+        // Cheap and safe from any thread. Only the first signal after the worker last looked unparks it.
+        public void signal() {
+            signals.increment();
+            if (pendingSince.get() == 0 && pendingSince.compareAndSet(0, System.nanoTime() | 1)) {
+                LockSupport.unpark(thread);
+            }
+        }
+
+        private void loop() {
+            long next = intervalNanos > 0 ? System.nanoTime() + intervalNanos : Long.MAX_VALUE;
+            while (!stopping) {
+                long since = pendingSince.getAndSet(0);
+                long now = System.nanoTime();
+                if (since == 0 && now - next < 0) {
+                    if (next == Long.MAX_VALUE) LockSupport.park(this); else LockSupport.parkNanos(this, next - now);
+                    wakeups.incrementAndGet();
+                    continue;
+                }
+                if (since != 0) recordLag(now - since);
+                runBatches(false);
+                if (intervalNanos > 0) next = System.nanoTime() + intervalNanos;
+            }
+            runBatches(true);
+        }
+
+        private void runBatches(boolean draining) {
+            boolean more = true;
+            while (more && (draining ? System.nanoTime() - drainDeadline < 0 : !stopping)) {
+                runs.incrementAndGet();
+                try {
+                    more = work.process(draining);
+                } catch (Exception e) {
+                    failures.incrementAndGet();
+                    System.err.println(thread.getName() + ": " + e); // keep running; one bad batch must not kill the worker
+                    more = false;
+                }
+            }
+        }
+
+        private void recordLag(long lag) {
+            lagSamples.incrementAndGet();
+            lagTotal.addAndGet(lag);
+            lagMax.accumulateAndGet(lag, Math::max);
+        }
+
+        public Stats stats() {
+            long n = lagSamples.get();
+            return new Stats(signals.sum(), wakeups.get(), runs.get(), failures.get(), lagMax.get(), n == 0 ? 0 : lagTotal.get() / n);
+        }
+
+        // Stops the worker, lets it drain until the deadline and waits for it. Returns false if it is still running.
+        public boolean close(long timeout, TimeUnit unit) {
+            drainDeadline = System.nanoTime() + unit.toNanos(timeout);
+            stopping = true;
+            LockSupport.unpark(thread);
+            if (hook != null && Thread.currentThread() != hook) {
+                try {
+                    Runtime.getRuntime().removeShutdownHook(hook);
+                } catch (IllegalStateException alreadyShuttingDown) {
+                    // the hook is running or about to run; it will join the same thread
+                }
+            }
+            try {
+                thread.join(Math.max(1, unit.toMillis(timeout)));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return !thread.isAlive();
+        }
+
+        @Override
+        public void close() {
+            close(5, TimeUnit.SECONDS);
+        }
+    }
+
+    // Items carry their enqueue time so the flusher can measure end-to-end lag
+    static final class Flusher implements BackgroundWorker.Work {
+        final Queue<Long> queue = new ConcurrentLinkedQueue<>();
+        final AtomicLong flushed = new AtomicLong(), lagTotal = new AtomicLong(), lagMax = new AtomicLong();
+        final int batchSize;
+        final long sinkMillis;
+
+        Flusher(int batchSize, long sinkMillis) {
+            this.batchSize = batchSize;
+            this.sinkMillis = sinkMillis;
+        }
+
+        @Override
+        public boolean process(boolean draining) throws InterruptedException {
+            int n = 0;
+            Long enqueued;
+            long now = System.nanoTime();
+            while (n < batchSize && (enqueued = queue.poll()) != null) {
+                long lag = now - enqueued;
+                lagTotal.addAndGet(lag);
+                lagMax.accumulateAndGet(lag, Math::max);
+                n++;
+            }
+            if (n > 0 && sinkMillis > 0) Thread.sleep(sinkMillis); // slow downstream write
+            flushed.addAndGet(n);
+            boolean more = !queue.isEmpty();
+            if (draining && !more) System.out.println("drained, total flushed: " + flushed.get());
+            return more;
+        }
+
+        String report() {
+            long n = Math.max(1, flushed.get());
+            return String.format(Locale.ROOT, "flushed=%,d item lag avg=%,d us max=%,d us",
+                    flushed.get(), lagTotal.get() / n / 1000, lagMax.get() / 1000);
+        }
+    }
+
+    // Bursty producer: bursts of items with idle gaps between them
+    static void produce(Flusher f, Runnable afterEnqueue, long millis) throws InterruptedException {
+        long end = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis);
+        ThreadLocalRandom rnd = ThreadLocalRandom.current();
+        while (System.nanoTime() < end) {
+            int burst = rnd.nextInt(1, 200);
+            for (int i = 0; i < burst; i++) {
+                f.queue.add(System.nanoTime());
+                afterEnqueue.run();
+            }
+            Thread.sleep(rnd.nextInt(50, 300));
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        long millis = 3_000;
+
+        // Q40 pattern: poll every 200 ms
+        Flusher polled = new Flusher(1_000, 0);
+        AtomicLong pollWakeups = new AtomicLong();
+        AtomicBoolean running = new AtomicBoolean(true);
+        Thread poller = new Thread(() -> {
+            while (running.get()) {
+                try { Thread.sleep(200); } catch (InterruptedException e) { break; }
+                pollWakeups.incrementAndGet();
+                try { while (polled.process(false)) { } } catch (InterruptedException e) { break; }
+            }
+        });
+        poller.setDaemon(true);
+        poller.start();
+        produce(polled, () -> { }, millis);
+        running.set(false);
+        poller.join();
+        System.out.println("polling sleep(200): wakeups=" + pollWakeups.get() + "  " + polled.report());
+
+        // Park until signalled, plus a 1 s periodic flush as a safety net
+        Flusher parked = new Flusher(1_000, 0);
+        try (BackgroundWorker worker = new BackgroundWorker("flusher", 1, TimeUnit.SECONDS, parked).start()) {
+            produce(parked, worker::signal, millis);
+            Thread.sleep(50);
+            System.out.println("park + signal     : " + worker.stats());
+            System.out.println("                    " + parked.report());
+        }
+
+        // Drain on exit: main returns with work queued behind a slow sink; the shutdown hook finishes it
+        Flusher slow = new Flusher(100, 5);
+        BackgroundWorker worker = new BackgroundWorker("slow-flusher", 0, TimeUnit.SECONDS, slow)
+                .start()
+                .installShutdownHook(2, TimeUnit.SECONDS);
+        for (int i = 0; i < 5_000; i++) {
+            slow.queue.add(System.nanoTime());
+            worker.signal();
+        }
+        System.out.println("main exiting with " + slow.queue.size() + " items queued");
+    }
+}
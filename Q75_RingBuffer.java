@@ -0,0 +1,387 @@
+// Q75: Lock-free bounded ring buffer for passing messages between threads (builds on Q31, Q32, Q38, Q39)
+// Java example (requires Java 21 or later)
+//
+// Question: Q38/Q39 share data between threads by locking around it, and LinkedBlockingQueue allocates a node per
+// message. How do you hand messages from producer threads to consumer threads without locks or allocation?
+// Answer: a preallocated array used as a ring, where every slot carries a sequence number (D. Vyukov's bounded
+// MPMC queue). A producer claims position p by advancing `tail` (a CAS if there are several producers, a plain
+// store if there is only one), writes the element and publishes it by setting the slot's sequence to p + 1.
+// A consumer claims position p from `head` once the slot's sequence says it is published and releases the slot
+// by setting its sequence to p + capacity. head and tail are padded onto their own cache lines, so producers and
+// consumers do not invalidate each other's line on every operation (false sharing). drainTo() claims a whole run
+// of published slots with one head update. When the ring is empty or full, a wait strategy decides between
+// burning CPU for the lowest latency (spin), giving the core away (yield) or blocking (park).
+//
+// Run:  java Q75_RingBuffer [messages]
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.lang.management.ManagementFactory;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.*;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+public class Q75_RingBuffer {
+
+    public enum Mode { SINGLE, MULTI }
+
+    // A long alone on its cache line (56 bytes of padding on each side)
+    @SuppressWarnings("unused")
+    static final class Sequence {
+        private static final VarHandle VALUE;
+        static {
+            try {
+                VALUE = MethodHandles.lookup().findVarHandle(Sequence.class, "value", long.class);
+            } catch (ReflectiveOperationException e) {
+                throw new ExceptionInInitializerError(e);
+            }
+        }
+
+        long p01, p02, p03, p04, p05, p06, p07;
+        private long value;
+        long p11, p12, p13, p14, p15, p16, p17;
+
+        long get() { return (long) VALUE.getAcquire(this); }
+
+        long getPlain() { return value; }
+
+        void set(long v) { VALUE.setRelease(this, v); }
+
+        boolean compareAndSet(long expect, long update) { return VALUE.compareAndSet(this, expect, update); }
+    }
+
+    // How a thread waits for the ring to become non-empty / non-full. ready is re-checked by the caller after
+    // await returns, so spurious returns are allowed.
+    public interface WaitStrategy {
+        void await(BooleanSupplier ready) throws InterruptedException;
+
+        // Called after every successful offer/poll; only the parking strategy does anything here
+        default void signalAll() { }
+
+        // Lowest latency, keeps a core busy while waiting
+        static WaitStrategy spin() {
+            return ready -> {
+                while (!ready.getAsBoolean()) Thread.onSpinWait();
+            };
+        }
+
+        // Spins briefly, then gives the core to other runnable threads
+        static WaitStrategy yielding() {
+            return ready -> {
+                for (int i = 0; !ready.getAsBoolean(); i++) {
+                    if (i < 100) Thread.onSpinWait(); else Thread.yield();
+                }
+            };
+        }
+
+        // Spins briefly, then blocks on a condition; signalAll() costs one volatile read unless someone is parked
+        static WaitStrategy parking() {
+            return new Parking();
+        }
+    }
+
+    static final class Parking implements WaitStrategy {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Condition changed = lock.newCondition();
+        private volatile int waiting;
+
+        @Override
+        public void await(BooleanSupplier ready) throws InterruptedException {
+            for (int i = 0; i < 100; i++) {
+                if (ready.getAsBoolean()) return;
+                Thread.onSpinWait();
+            }
+            lock.lock();
+            try {
+                waiting++;
+                VarHandle.fullFence(); // pairs with the fence in signalAll(): one side always sees the other
+                try {
+                    while (!ready.getAsBoolean()) changed.await();
+                } finally {
+                    waiting--;
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public void signalAll() {
+            VarHandle.fullFence(); // the slot publish must be visible before we read `waiting` (store-load order)
+            if (waiting == 0) return;
+            lock.lock();
+            try {
+                changed.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    public static final class RingBuffer<E> {
+        private static final VarHandle SEQ = MethodHandles.arrayElementVarHandle(long[].class);
+
+        private final Object[] items;
+        private final long[] seqs;
+        private final int mask;
+        private final boolean multiProducer, multiConsumer;
+        private final Sequence head = new Sequence(), tail = new Sequence();
+        private final WaitStrategy producerWait, consumerWait;
+        private final BooleanSupplier notEmpty = this::canPoll, notFull = this::canOffer;
+
+        public RingBuffer(int capacity, Mode producers, Mode consumers, WaitStrategy producerWait, WaitStrategy consumerWait) {
+            int n = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+            this.items = new Object[n];
+            this.seqs = new long[n];
+            for (int i = 0; i < n; i++) seqs[i] = i;
+            this.mask = n - 1;
+            this.multiProducer = producers == Mode.MULTI;
+            this.multiConsumer = consumers == Mode.MULTI;
+            this.producerWait = producerWait;
+            this.consumerWait = consumerWait;
+        }
+
+        public int capacity() { return items.length; }
+
+        public boolean offer(E e) {
+            Objects.requireNonNull(e);
+            long pos = multiProducer ? tail.get() : tail.getPlain();
+            while (true) {
+                int i = (int) pos & mask;
+                long dif = (long) SEQ.getAcquire(seqs, i) - pos;
+                if (dif == 0) {
+                    if (!multiProducer) {
+                        tail.set(pos + 1);
+                        break;
+                    }
+                    if (tail.compareAndSet(pos, pos + 1)) break;
+                    pos = tail.get();
+                } else if (dif < 0) {
+                    return false; // slot not yet released by the consumer a lap behind: full
+                } else {
+                    pos = tail.get(); // another producer took it
+                }
+            }
+            int i = (int) pos & mask;
+            items[i] = e;
+            SEQ.setRelease(seqs, i, pos + 1);
+            consumerWait.signalAll();
+            return true;
+        }
+
+        @SuppressWarnings("unchecked")
+        public E poll() {
+            long pos = multiConsumer ? head.get() : head.getPlain();
+            while (true) {
+                int i = (int) pos & mask;
+                long dif = (long) SEQ.getAcquire(seqs, i) - (pos + 1);
+                if (dif == 0) {
+                    if (!multiConsumer) {
+                        head.set(pos + 1);
+                        break;
+                    }
+                    if (head.compareAndSet(pos, pos + 1)) break;
+                    pos = head.get();
+                } else if (dif < 0) {
+                    return null; // not published yet: empty
+                } else {
+                    pos = head.get();
+                }
+            }
+            int i = (int) pos & mask;
+            E e = (E) items[i];
+            items[i] = null;
+            SEQ.setRelease(seqs, i, pos + items.length);
+            producerWait.signalAll();
+            return e;
+        }
+
+        public void put(E e) throws InterruptedException {
+            while (!offer(e)) producerWait.await(notFull);
+        }
+
+        public E take() throws InterruptedException {
+            E e;
+            while ((e = poll()) == null) consumerWait.await(notEmpty);
+            return e;
+        }
+
+        // Claims up to max published elements with a single head update and hands them to sink in order
+        @SuppressWarnings("unchecked")
+        public int drainTo(Consumer<? super E> sink, int max) {
+            long pos;
+            int n;
+            while (true) {
+                pos = multiConsumer ? head.get() : head.getPlain();
+                n = 0;
+                while (n < max && (long) SEQ.getAcquire(seqs, (int) (pos + n) & mask) == pos + n + 1) n++;
+                if (n == 0) return 0;
+                if (!multiConsumer) {
+                    head.set(pos + n);
+                    break;
+                }
+                if (head.compareAndSet(pos, pos + n)) break;
+            }
+            for (int k = 0; k < n; k++) {
+                int i = (int) (pos + k) & mask;
+                E e = (E) items[i];
+                items[i] = null;
+                SEQ.setRelease(seqs, i, pos + k + items.length);
+                sink.accept(e);
+            }
+            producerWait.signalAll();
+            return n;
+        }
+
+        private boolean canPoll() {
+            long pos = head.get();
+            return (long) SEQ.getAcquire(seqs, (int) pos & mask) == pos + 1;
+        }
+
+        private boolean canOffer() {
+            long pos = tail.get();
+            return (long) SEQ.getAcquire(seqs, (int) pos & mask) == pos;
+        }
+
+        // Approximate while producers and consumers are active
+        public int size() {
+            return (int) Math.max(0, Math.min(items.length, tail.get() - head.get()));
+        }
+    }
+
+    // The benchmark drives every queue through these two operations
+    interface Channel {
+        void send(Object m) throws InterruptedException;
+
+        // Receives between one and max messages and returns how many
+        int receive(int max) throws InterruptedException;
+    }
+
+    static Channel blocking(BlockingQueue<Object> q) {
+        return new Channel() {
+            @Override public void send(Object m) throws InterruptedException { q.put(m); }
+
+            @Override public int receive(int max) throws InterruptedException { q.take(); return 1; }
+        };
+    }
+
+    // Unbounded and non-blocking: both sides spin-yield on an empty queue
+    static Channel concurrentLinked(ConcurrentLinkedQueue<Object> q) {
+        return new Channel() {
+            @Override public void send(Object m) { q.offer(m); }
+
+            @Override
+            public int receive(int max) {
+                while (q.poll() == null) Thread.yield();
+                return 1;
+            }
+        };
+    }
+
+    static Channel ring(RingBuffer<Object> r, int batch) {
+        Consumer<Object> sink = m -> { };
+        return new Channel() {
+            @Override public void send(Object m) throws InterruptedException { r.put(m); }
+
+            @Override
+            public int receive(int max) throws InterruptedException {
+                int n = batch > 1 ? r.drainTo(sink, Math.min(batch, max)) : 0;
+                if (n > 0) return n;
+                r.take(); // nothing published yet: wait for one message the normal way
+                return 1;
+            }
+        };
+    }
+
+    static long allocatedBytes() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean()).getTotalThreadAllocatedBytes();
+    }
+
+    static final Object MESSAGE = new Object();
+
+    // producers x consumers threads move `messages` messages in total; prints messages/s and bytes/message
+    static void transfer(String name, Channel ch, int producers, int consumers, int messages, boolean report)
+            throws InterruptedException {
+        int perProducer = messages / producers;
+        int total = perProducer * producers;
+        AtomicInteger received = new AtomicInteger();
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            threads.add(new Thread(() -> {
+                try {
+                    for (int i = 0; i < perProducer; i++) ch.send(MESSAGE);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }));
+        }
+        // each consumer claims its quota up front so none of them blocks forever on an empty queue at the end
+        int perConsumer = total / consumers;
+        for (int c = 0; c < consumers; c++) {
+            int quota = c == consumers - 1 ? total - perConsumer * (consumers - 1) : perConsumer;
+            threads.add(new Thread(() -> {
+                try {
+                    int got = 0;
+                    while (got < quota) got += ch.receive(quota - got);
+                    received.addAndGet(got);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }));
+        }
+        long a0 = allocatedBytes(), t0 = System.nanoTime();
+        for (Thread t : threads) t.start();
+        for (Thread t : threads) t.join();
+        long nanos = System.nanoTime() - t0, bytes = allocatedBytes() - a0;
+        if (report) {
+            System.out.printf(Locale.ROOT, "%-32s %dP/%dC  %,12.0f msgs/s  %6.1f bytes/msg%n",
+                    name, producers, consumers, received.get() / (nanos / 1e9), (double) bytes / total);
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        int messages = args.length > 0 ? Integer.parseInt(args[0]) : 2_000_000;
+        int capacity = 1024;
+
+        // Q32-style hand-off: one producer Runnable, one consumer Runnable, no locks
+        RingBuffer<String> handOff = new RingBuffer<>(4, Mode.SINGLE, Mode.SINGLE, WaitStrategy.parking(), WaitStrategy.parking());
+        Thread consumer = new Thread(() -> {
+            try {
+                for (int i = 0; i < 3; i++) System.out.println("received " + handOff.take());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        consumer.start();
+        for (String s : List.of("a", "b", "c")) handOff.put(s);
+        consumer.join();
+
+        // note: with fewer cores than producer + consumer threads, spinning waits steal the CPU from the
+        // thread they wait for; compare the strategies on a machine with enough cores
+        int[][] shapes = {{1, 1}, {2, 2}};
+        for (int round = 0; round < 2; round++) { // first round warms up the JIT
+            boolean report = round == 1;
+            int n = report ? messages : messages / 10;
+            for (int[] shape : shapes) {
+                int p = shape[0], c = shape[1];
+                Mode pm = p == 1 ? Mode.SINGLE : Mode.MULTI, cm = c == 1 ? Mode.SINGLE : Mode.MULTI;
+                transfer("ArrayBlockingQueue", blocking(new ArrayBlockingQueue<>(capacity)), p, c, n, report);
+                transfer("LinkedBlockingQueue", blocking(new LinkedBlockingQueue<>(capacity)), p, c, n, report);
+                transfer("ConcurrentLinkedQueue (unbounded)", concurrentLinked(new ConcurrentLinkedQueue<>()), p, c, n, report);
+                transfer("RingBuffer " + pm + "/" + cm + " yield",
+                        ring(new RingBuffer<>(capacity, pm, cm, WaitStrategy.yielding(), WaitStrategy.yielding()), 1), p, c, n, report);
+                transfer("RingBuffer " + pm + "/" + cm + " park",
+                        ring(new RingBuffer<>(capacity, pm, cm, WaitStrategy.parking(), WaitStrategy.parking()), 1), p, c, n, report);
+                transfer("RingBuffer " + pm + "/" + cm + " park drain(64)",
+                        ring(new RingBuffer<>(capacity, pm, cm, WaitStrategy.parking(), WaitStrategy.parking()), 64), p, c, n, report);
+                if (Runtime.getRuntime().availableProcessors() >= p + c) {
+                    transfer("RingBuffer " + pm + "/" + cm + " spin",
+                            ring(new RingBuffer<>(capacity, pm, cm, WaitStrategy.spin(), WaitStrategy.spin()), 1), p, c, n, report);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,251 @@
+// Q76: Off-heap columnar storage for records (builds on the Person record of Q24, Q27, Q45, Q50)
+// Java example (requires Java 16 or later)
+//
+// Question: what does a List<Person> with 100M+ entries cost on the heap, and how can the same data be stored
+// and scanned without one object per record?
+// Answer: each entry is a Person (12-16 byte header + fields), a String (header, hash, coder, reference) and that
+// String's byte[] (header + length + characters), plus the list's reference slot: typically 70-90 bytes for a
+// 4-byte age and a short name. The GC also has to trace all of those objects. A columnar store keeps one
+// fixed-width column per field in native memory, here direct ByteBuffers viewed as IntBuffer / LongBuffer:
+//  - age: an int column, 4 bytes per record,
+//  - name: dictionary-encoded, i.e. an int code per record plus each distinct name stored once.
+// A flyweight view points at a row index and implements the same accessors as Person, so callers can scan
+// millions of rows with no allocation at all. Filters on name compare int codes, not Strings.
+// A direct buffer is limited to 2 GB and its memory is returned only when the GC collects the buffer, so this
+// store is deliberately not AutoCloseable: there is nothing it could free deterministically. On Java 22+ the FFM
+// API (Arena.ofConfined() + MemorySegment) lifts both limits, and an Arena-backed store can implement
+// AutoCloseable and free all columns in close(); the column code stays the same apart from setAtIndex/getAtIndex
+// instead of put/get.
+//
+// Run:  java Q76_OffHeapPersonStore [records]
+
+import java.nio.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.function.Consumer;
+
+public class Q76_OffHeapPersonStore {
+
+    public record Person(String name, int age) {}
+
+    public static final class PersonStore {
+        private final int capacity;
+        private IntBuffer ages;      // direct, native byte order: 4 bytes per record outside the Java heap
+        private IntBuffer nameCodes;
+        private int size;
+
+        // Dictionary: encoding map on the heap (one entry per distinct name), UTF-8 bytes off-heap
+        private final Map<String, Integer> codes = new HashMap<>();
+        private ByteBuffer dictBytes;
+        private LongBuffer dictOffsets; // offsets[code] .. offsets[code + 1] delimits a name
+        private int dictUsed;
+        private String[] decoded = new String[16]; // lazily decoded names, at most one String per distinct name
+
+        public PersonStore(int capacity) {
+            if (capacity > Integer.MAX_VALUE / Integer.BYTES) throw new IllegalArgumentException("capacity too large for a direct buffer");
+            this.capacity = capacity;
+            this.ages = direct(Integer.BYTES * capacity).asIntBuffer();
+            this.nameCodes = direct(Integer.BYTES * capacity).asIntBuffer();
+            this.dictBytes = direct(1024);
+            this.dictOffsets = direct(Long.BYTES * 17).asLongBuffer();
+        }
+
+        private static ByteBuffer direct(int bytes) { return ByteBuffer.allocateDirect(bytes).order(ByteOrder.nativeOrder()); }
+
+        public int size() { return size; }
+
+        public int add(String name, int age) {
+            if (size == capacity) throw new IllegalStateException("store is full (capacity " + capacity + ")");
+            int i = size++;
+            ages.put(i, age);
+            nameCodes.put(i, encode(name));
+            return i;
+        }
+
+        public int add(Person p) { return add(p.name(), p.age()); }
+
+        // Code of `name`, or -1 if no stored record has it (so a filter on it matches nothing)
+        public int codeOf(String name) {
+            Integer c = codes.get(name);
+            return c == null ? -1 : c;
+        }
+
+        public int distinctNames() { return codes.size(); }
+
+        private int encode(String name) {
+            Integer c = codes.get(name);
+            if (c != null) return c;
+            int code = codes.size();
+            byte[] utf8 = name.getBytes(StandardCharsets.UTF_8);
+            if (dictUsed + utf8.length > dictBytes.capacity()) {
+                ByteBuffer bigger = direct(Math.max(dictBytes.capacity() * 2, dictUsed + utf8.length));
+                dictBytes = bigger.put(0, dictBytes, 0, dictUsed);
+            }
+            if (code + 2 > dictOffsets.capacity()) {
+                LongBuffer bigger = direct(Long.BYTES * dictOffsets.capacity() * 2).asLongBuffer();
+                dictOffsets = bigger.put(0, dictOffsets, 0, code + 1);
+            }
+            dictBytes.put(dictUsed, utf8);
+            dictUsed += utf8.length;
+            dictOffsets.put(code + 1, dictUsed);
+            codes.put(name, code);
+            return code;
+        }
+
+        public int age(int i) {
+            Objects.checkIndex(i, size);
+            return ages.get(i);
+        }
+
+        public int nameCode(int i) {
+            Objects.checkIndex(i, size);
+            return nameCodes.get(i);
+        }
+
+        public String name(int i) { return decode(nameCode(i)); }
+
+        private String decode(int code) {
+            if (code >= decoded.length) decoded = Arrays.copyOf(decoded, Math.max(code + 1, decoded.length * 2));
+            String s = decoded[code];
+            if (s == null) {
+                int from = (int) dictOffsets.get(code);
+                byte[] utf8 = new byte[(int) dictOffsets.get(code + 1) - from];
+                dictBytes.get(from, utf8);
+                decoded[code] = s = new String(utf8, StandardCharsets.UTF_8);
+            }
+            return s;
+        }
+
+        // Flyweight over one row: same accessors as Person, no per-row object
+        public final class View {
+            private int index;
+
+            public View at(int i) {
+                Objects.checkIndex(i, size);
+                index = i;
+                return this;
+            }
+
+            public int index() { return index; }
+
+            public String name() { return decode(nameCodes.get(index)); }
+
+            public int age() { return ages.get(index); }
+
+            public int nameCode() { return nameCodes.get(index); }
+
+            public Person toPerson() { return new Person(name(), age()); }
+
+            @Override public String toString() { return "Person[name=" + name() + ", age=" + age() + "]"; }
+        }
+
+        public View view() { return new View(); }
+
+        // Visits every row with one reused View; the view must not be kept beyond the callback
+        public void forEach(Consumer<? super View> action) {
+            View v = new View();
+            for (int i = 0; i < size; i++) action.accept(v.at(i));
+        }
+
+        // Column scans: tight loops over the native int columns
+        public long sumAges() {
+            long sum = 0;
+            for (int i = 0; i < size; i++) sum += ages.get(i);
+            return sum;
+        }
+
+        public int count(String name, int minAge) {
+            int code = codeOf(name);
+            if (code < 0) return 0;
+            int n = 0;
+            for (int i = 0; i < size; i++) {
+                if (nameCodes.get(i) == code && ages.get(i) >= minAge) n++;
+            }
+            return n;
+        }
+
+        public long offHeapBytes() {
+            return (long) Integer.BYTES * (ages.capacity() + nameCodes.capacity()) + dictBytes.capacity() + (long) Long.BYTES * dictOffsets.capacity();
+        }
+
+        // Only drops the references to the buffers: their native memory is released once the GC has collected them,
+        // not when this method returns (see the header)
+        public void release() {
+            size = 0;
+            ages = nameCodes = null;
+            dictBytes = null;
+            dictOffsets = null;
+        }
+    }
+
+    static long usedHeap() {
+        for (int i = 0; i < 3; i++) System.gc();
+        Runtime rt = Runtime.getRuntime();
+        return rt.totalMemory() - rt.freeMemory();
+    }
+
+    // Best of several runs, in millions of records per second
+    static double rate(int n, Runnable scan) {
+        long best = Long.MAX_VALUE;
+        for (int r = 0; r < 7; r++) {
+            long t0 = System.nanoTime();
+            scan.run();
+            best = Math.min(best, System.nanoTime() - t0);
+        }
+        return n / (best / 1e3);
+    }
+
+    static volatile long sink;
+
+    public static void main(String[] args) {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 5_000_000;
+        String[] pool = new String[1_000];
+        for (int i = 0; i < pool.length; i++) pool[i] = i == 0 ? "Lilly" : "Name-" + i;
+        Random rnd = new Random(42);
+
+        // Q24 style usage through the flyweight
+        PersonStore small = new PersonStore(2);
+        small.add(new Person("Lilly", 25));
+        small.add("John", 30);
+        PersonStore.View lilly = small.view().at(0);
+        System.out.println(lilly.name() + ", " + lilly.age() + "  /  " + small.view().at(1));
+        small.release();
+
+        // Heap footprint: every name is its own String instance, as it would be after parsing input
+        long h0 = usedHeap();
+        List<Person> list = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            list.add(new Person(new String(pool[rnd.nextInt(pool.length)].toCharArray()), 18 + rnd.nextInt(60)));
+        }
+        long listBytes = usedHeap() - h0;
+
+        rnd = new Random(42);
+        long h1 = usedHeap();
+        PersonStore store = new PersonStore(n);
+        for (int i = 0; i < n; i++) store.add(pool[rnd.nextInt(pool.length)], 18 + rnd.nextInt(60));
+        long storeHeap = usedHeap() - h1;
+
+        System.out.printf(Locale.ROOT, "records=%,d  distinct names=%,d%n", n, store.distinctNames());
+        System.out.printf(Locale.ROOT, "List<Person>  heap %,14d bytes  (%5.1f bytes/record)%n", listBytes, (double) listBytes / n);
+        System.out.printf(Locale.ROOT, "PersonStore   heap %,14d bytes  off-heap %,14d bytes  (%5.1f bytes/record total)%n",
+                storeHeap, store.offHeapBytes(), (double) (storeHeap + store.offHeapBytes()) / n);
+
+        // Scan throughput
+        System.out.printf(Locale.ROOT, "sum(age)                 List loop %7.1f M rec/s   View loop %7.1f M rec/s   column scan %7.1f M rec/s%n",
+                rate(n, () -> { long s = 0; for (Person p : list) s += p.age(); sink = s; }),
+                rate(n, () -> { long s = 0; PersonStore.View v = store.view(); for (int i = 0; i < n; i++) s += v.at(i).age(); sink = s; }),
+                rate(n, () -> sink = store.sumAges()));
+        System.out.printf(Locale.ROOT, "name=Lilly && age>=30     List loop %7.1f M rec/s   View loop %7.1f M rec/s   column scan %7.1f M rec/s%n",
+                rate(n, () -> { int c = 0; for (Person p : list) if (p.age() >= 30 && p.name().equals("Lilly")) c++; sink = c; }),
+                rate(n, () -> {
+                    int c = 0, code = store.codeOf("Lilly");
+                    PersonStore.View v = store.view();
+                    for (int i = 0; i < n; i++) if (v.at(i).age() >= 30 && v.nameCode() == code) c++;
+                    sink = c;
+                }),
+                rate(n, () -> sink = store.count("Lilly", 30)));
+        long expected = list.stream().filter(p -> p.age() >= 30 && p.name().equals("Lilly")).count();
+        System.out.println("same answer: " + (expected == store.count("Lilly", 30)));
+        store.release();
+    }
+}
@@ -0,0 +1,517 @@
+// Q77: Open-addressing maps with primitive values (behind the map patterns of Q18, Q49, Q51)
+// Java example (requires Java 10 or later)
+//
+// Question: why does a HashMap<String, Integer> with a million entries take so much heap, and what is the
+// alternative when values are ints?
+// Answer: HashMap chains entries: each one is a Node object (header, hash, key, value, next = 32 bytes) plus a
+// boxed Integer (16 bytes) plus a slot in the table. LinkedHashMap adds before/after links to every node (40
+// bytes). Open addressing stores keys and values directly in parallel arrays: on a collision the entry moves to
+// the next free slot (linear probing), and removal shifts the following entries back instead of leaving
+// tombstones. With int values there is nothing to box, so an entry costs a key reference plus 4 bytes, divided
+// by the load factor. For insertion order (Q49) keep the entries in a dense array in the order they were added,
+// and let the hash table hold only int indexes into it (the layout CPython's dict uses): first/last are the two
+// ends of that array, and nothing needs a doubly linked node.
+//
+// Run:  java Q77_OpenAddressingMaps [entries]
+
+import java.util.*;
+import java.util.function.ObjIntConsumer;
+
+public class Q77_OpenAddressingMaps {
+
+    static int mix(int h) {
+        h *= 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    // Smallest power of two table that keeps `expected` entries at or below the load factor
+    static int tableSize(int expected, float loadFactor) {
+        long n = (long) Math.ceil(Math.max(2, expected) / loadFactor);
+        return (int) Math.min(1 << 30, Long.highestOneBit(n - 1) << 1);
+    }
+
+    // True if `home` lies cyclically in (gap, j]: the entry at j may not move back to gap
+    static boolean between(int gap, int home, int j) {
+        return gap <= j ? gap < home && home <= j : gap < home || home <= j;
+    }
+
+    public interface IntIntConsumer {
+        void accept(int key, int value);
+    }
+
+    // int -> int. Key 0 marks a free slot in the table, so an actual 0 key is kept in a separate field.
+    public static final class IntIntMap {
+        private static final float LOAD_FACTOR = 0.75f;
+        private final int noValue;
+        private int[] keys, values;
+        private int mask, size, resizeAt;
+        private boolean hasZero;
+        private int zeroValue;
+
+        // noValue: returned by get/put/remove when the key is absent (fastutil calls it the default return value)
+        public IntIntMap(int expected, int noValue) {
+            this.noValue = noValue;
+            allocate(tableSize(expected, LOAD_FACTOR));
+        }
+
+        private void allocate(int capacity) {
+            keys = new int[capacity];
+            values = new int[capacity];
+            mask = capacity - 1;
+            resizeAt = (int) (capacity * LOAD_FACTOR);
+        }
+
+        public int size() { return size; }
+
+        public int get(int key) {
+            if (key == 0) return hasZero ? zeroValue : noValue;
+            for (int i = mix(key) & mask; ; i = (i + 1) & mask) {
+                int k = keys[i];
+                if (k == key) return values[i];
+                if (k == 0) return noValue;
+            }
+        }
+
+        public boolean containsKey(int key) {
+            if (key == 0) return hasZero;
+            for (int i = mix(key) & mask; ; i = (i + 1) & mask) {
+                int k = keys[i];
+                if (k == key) return true;
+                if (k == 0) return false;
+            }
+        }
+
+        public int put(int key, int value) {
+            if (key == 0) {
+                int old = hasZero ? zeroValue : noValue;
+                if (!hasZero) size++;
+                hasZero = true;
+                zeroValue = value;
+                return old;
+            }
+            int i = mix(key) & mask;
+            for (int k; (k = keys[i]) != 0; i = (i + 1) & mask) {
+                if (k == key) {
+                    int old = values[i];
+                    values[i] = value;
+                    return old;
+                }
+            }
+            keys[i] = key;
+            values[i] = value;
+            if (++size > resizeAt) rehash(keys.length * 2);
+            return noValue;
+        }
+
+        public int remove(int key) {
+            if (key == 0) {
+                if (!hasZero) return noValue;
+                hasZero = false;
+                size--;
+                return zeroValue;
+            }
+            for (int i = mix(key) & mask; ; i = (i + 1) & mask) {
+                int k = keys[i];
+                if (k == 0) return noValue;
+                if (k == key) {
+                    int old = values[i];
+                    shiftBack(i);
+                    size--;
+                    return old;
+                }
+            }
+        }
+
+        // Backward-shift deletion: pull later entries of the same probe run into the gap
+        private void shiftBack(int gap) {
+            for (int j = (gap + 1) & mask; keys[j] != 0; j = (j + 1) & mask) {
+                if (between(gap, mix(keys[j]) & mask, j)) continue;
+                keys[gap] = keys[j];
+                values[gap] = values[j];
+                gap = j;
+            }
+            keys[gap] = 0;
+        }
+
+        private void rehash(int capacity) {
+            int[] oldKeys = keys, oldValues = values;
+            allocate(capacity);
+            for (int j = 0; j < oldKeys.length; j++) {
+                int k = oldKeys[j];
+                if (k == 0) continue;
+                int i = mix(k) & mask;
+                while (keys[i] != 0) i = (i + 1) & mask;
+                keys[i] = k;
+                values[i] = oldValues[j];
+            }
+        }
+
+        public void forEach(IntIntConsumer action) {
+            if (hasZero) action.accept(0, zeroValue);
+            for (int i = 0; i < keys.length; i++) if (keys[i] != 0) action.accept(keys[i], values[i]);
+        }
+    }
+
+    // K -> int, null marks a free slot (null keys are rejected). Hashes are not stored, so a rehash calls
+    // hashCode() on every key (one cache miss per entry for Strings): pass the expected size when it is known.
+    public static final class ObjectIntMap<K> {
+        private static final float LOAD_FACTOR = 0.75f;
+        private final int noValue;
+        private Object[] keys;
+        private int[] values;
+        private int mask, size, resizeAt;
+
+        public ObjectIntMap(int expected, int noValue) {
+            this.noValue = noValue;
+            allocate(tableSize(expected, LOAD_FACTOR));
+        }
+
+        private void allocate(int capacity) {
+            keys = new Object[capacity];
+            values = new int[capacity];
+            mask = capacity - 1;
+            resizeAt = (int) (capacity * LOAD_FACTOR);
+        }
+
+        public int size() { return size; }
+
+        private int slot(Object key) {
+            for (int i = mix(key.hashCode()) & mask; ; i = (i + 1) & mask) {
+                Object k = keys[i];
+                if (k == null) return -(i + 1);
+                if (k == key || k.equals(key)) return i;
+            }
+        }
+
+        public int get(Object key) {
+            int i = slot(key);
+            return i >= 0 ? values[i] : noValue;
+        }
+
+        public boolean containsKey(Object key) { return slot(key) >= 0; }
+
+        public int put(K key, int value) {
+            int i = slot(key);
+            if (i >= 0) {
+                int old = values[i];
+                values[i] = value;
+                return old;
+            }
+            insert(-i - 1, key, value);
+            return noValue;
+        }
+
+        // Counting idiom without boxing: map.merge(key, 1, Integer::sum)
+        public int addTo(K key, int delta) {
+            int i = slot(key);
+            if (i >= 0) return values[i] += delta;
+            insert(-i - 1, key, delta);
+            return delta;
+        }
+
+        private void insert(int i, K key, int value) {
+            keys[i] = key;
+            values[i] = value;
+            if (++size > resizeAt) rehash(keys.length * 2);
+        }
+
+        public int remove(Object key) {
+            int i = slot(key);
+            if (i < 0) return noValue;
+            int old = values[i];
+            for (int gap = i, j = (i + 1) & mask; ; j = (j + 1) & mask) {
+                Object k = keys[j];
+                if (k == null) {
+                    keys[gap] = null;
+                    break;
+                }
+                if (between(gap, mix(k.hashCode()) & mask, j)) continue;
+                keys[gap] = k;
+                values[gap] = values[j];
+                gap = j;
+            }
+            size--;
+            return old;
+        }
+
+        private void rehash(int capacity) {
+            Object[] oldKeys = keys;
+            int[] oldValues = values;
+            allocate(capacity);
+            for (int j = 0; j < oldKeys.length; j++) {
+                Object k = oldKeys[j];
+                if (k == null) continue;
+                int i = mix(k.hashCode()) & mask;
+                while (keys[i] != null) i = (i + 1) & mask;
+                keys[i] = k;
+                values[i] = oldValues[j];
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        public void forEach(ObjIntConsumer<? super K> action) {
+            for (int i = 0; i < keys.length; i++) if (keys[i] != null) action.accept((K) keys[i], values[i]);
+        }
+    }
+
+    // Insertion-ordered K -> int. Entries live densely in insertion order in keys/hashes/values; the open-addressing
+    // index stores entry number + 1 (0 = free). A removed entry leaves a null key behind, which is compacted away
+    // when the entry arrays fill up. Re-putting an existing key keeps its position, as in LinkedHashMap.
+    public static final class LinkedObjectIntMap<K> {
+        private final int noValue;
+        private int[] index;
+        private Object[] keys;
+        private int[] hashes, values;
+        private int indexMask, head, used, size;
+
+        public LinkedObjectIntMap(int expected, int noValue) {
+            this.noValue = noValue;
+            allocate(Math.max(4, expected));
+        }
+
+        private void allocate(int entries) {
+            keys = new Object[entries];
+            hashes = new int[entries];
+            values = new int[entries];
+            index = new int[tableSize(entries, 0.5f)];
+            indexMask = index.length - 1;
+        }
+
+        public int size() { return size; }
+
+        // Index slot holding `key`, or -(free slot + 1)
+        private int slot(Object key, int h) {
+            for (int i = h & indexMask; ; i = (i + 1) & indexMask) {
+                int e = index[i] - 1;
+                if (e < 0) return -(i + 1);
+                if (hashes[e] == h && (keys[e] == key || keys[e].equals(key))) return i;
+            }
+        }
+
+        public int get(Object key) {
+            int i = slot(key, mix(key.hashCode()));
+            return i >= 0 ? values[index[i] - 1] : noValue;
+        }
+
+        public boolean containsKey(Object key) { return slot(key, mix(key.hashCode())) >= 0; }
+
+        public int put(K key, int value) {
+            int h = mix(key.hashCode());
+            int i = slot(key, h);
+            if (i >= 0) {
+                int e = index[i] - 1;
+                int old = values[e];
+                values[e] = value;
+                return old;
+            }
+            if (used == keys.length) {
+                resize(size * 2 > keys.length ? keys.length * 2 : keys.length); // grow, or just compact out removals
+                i = slot(key, h);
+            }
+            int e = used++;
+            keys[e] = key;
+            hashes[e] = h;
+            values[e] = value;
+            index[-i - 1] = e + 1;
+            size++;
+            return noValue;
+        }
+
+        public int remove(Object key) {
+            int i = slot(key, mix(key.hashCode()));
+            return i < 0 ? noValue : removeAt(i);
+        }
+
+        private int removeAt(int slot) {
+            int e = index[slot] - 1;
+            int old = values[e];
+            keys[e] = null;
+            size--;
+            for (int gap = slot, j = (slot + 1) & indexMask; ; j = (j + 1) & indexMask) {
+                int f = index[j] - 1;
+                if (f < 0) {
+                    index[gap] = 0;
+                    break;
+                }
+                if (between(gap, hashes[f] & indexMask, j)) continue;
+                index[gap] = index[j];
+                gap = j;
+            }
+            while (head < used && keys[head] == null) head++;      // keeps first/last O(1) amortized
+            while (used > head && keys[used - 1] == null) used--;
+            if (size == 0) head = used = 0;
+            return old;
+        }
+
+        private void resize(int entries) {
+            Object[] oldKeys = keys;
+            int[] oldHashes = hashes, oldValues = values;
+            int oldUsed = used;
+            allocate(entries);
+            used = 0;
+            for (int e = head; e < oldUsed; e++) {
+                if (oldKeys[e] == null) continue;
+                keys[used] = oldKeys[e];
+                hashes[used] = oldHashes[e];
+                values[used] = oldValues[e];
+                int i = oldHashes[e] & indexMask;
+                while (index[i] != 0) i = (i + 1) & indexMask;
+                index[i] = ++used;
+            }
+            head = 0;
+        }
+
+        @SuppressWarnings("unchecked")
+        public K firstKey() {
+            if (size == 0) throw new NoSuchElementException();
+            return (K) keys[head];
+        }
+
+        @SuppressWarnings("unchecked")
+        public K lastKey() {
+            if (size == 0) throw new NoSuchElementException();
+            return (K) keys[used - 1];
+        }
+
+        public int firstValue() {
+            if (size == 0) throw new NoSuchElementException();
+            return values[head];
+        }
+
+        public int lastValue() {
+            if (size == 0) throw new NoSuchElementException();
+            return values[used - 1];
+        }
+
+        // Removes and returns the eldest key (LinkedHashMap: pollFirstEntry / iterator().next() + remove)
+        public K pollFirstKey() {
+            K k = firstKey();
+            remove(k);
+            return k;
+        }
+
+        public K pollLastKey() {
+            K k = lastKey();
+            remove(k);
+            return k;
+        }
+
+        @SuppressWarnings("unchecked")
+        public void forEach(ObjIntConsumer<? super K> action) {
+            for (int e = head; e < used; e++) if (keys[e] != null) action.accept((K) keys[e], values[e]);
+        }
+
+        @Override
+        public String toString() {
+            StringJoiner sj = new StringJoiner(", ", "{", "}");
+            forEach((k, v) -> sj.add(k + "=" + v));
+            return sj.toString();
+        }
+    }
+
+    static long usedHeap() {
+        for (int i = 0; i < 3; i++) System.gc();
+        Runtime rt = Runtime.getRuntime();
+        return rt.totalMemory() - rt.freeMemory();
+    }
+
+    // Heap retained by whatever build() returns, in bytes per entry (the keys themselves are shared and excluded)
+    static double footprint(int n, java.util.function.Supplier<Object> build) {
+        long before = usedHeap();
+        Object map = build.get();
+        long bytes = usedHeap() - before;
+        if (map.hashCode() == 42) System.out.print(""); // keep `map` reachable until after the measurement
+        return (double) bytes / n;
+    }
+
+    // Best of several runs, nanoseconds per operation
+    static double nsPerOp(int n, Runnable r) {
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < 7; i++) {
+            long t0 = System.nanoTime();
+            r.run();
+            best = Math.min(best, System.nanoTime() - t0);
+        }
+        return (double) best / n;
+    }
+
+    static volatile long sink;
+
+    public static void main(String[] args) {
+        // Q49 with the insertion-ordered map: first/last without linked nodes
+        LinkedObjectIntMap<String> linked = new LinkedObjectIntMap<>(4, -1);
+        linked.put("Alice", 30);
+        linked.put("Bob", 25);
+        linked.put("Charlie", 35);
+        System.out.println("insertion order: " + linked);
+        System.out.println("removed first: " + linked.pollFirstKey() + " -> " + linked + ", last: " + linked.lastKey());
+
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        String[] keys = new String[n];
+        int[] ints = new int[n];
+        for (int i = 0; i < n; i++) {
+            keys[i] = "key-" + i;
+            ints[i] = i * 7 + 1_000; // outside the Integer cache, so HashMap really boxes
+        }
+        String[] lookups = keys.clone();
+        Collections.shuffle(Arrays.asList(lookups), new Random(1));
+
+        System.out.printf(Locale.ROOT, "%-30s %12s %10s %10s %10s%n", "map (" + n + " entries)", "bytes/entry", "put ns", "get ns", "iterate ns");
+        Map<String, Integer> hashMap = new HashMap<>();
+        for (int i = 0; i < n; i++) hashMap.put(keys[i], ints[i]);
+        report("HashMap<String,Integer>", n,
+                footprint(n, () -> { Map<String, Integer> m = new HashMap<>(); for (int i = 0; i < n; i++) m.put(keys[i], ints[i]); return m; }),
+                () -> { Map<String, Integer> m = new HashMap<>(); for (int i = 0; i < n; i++) m.put(keys[i], ints[i]); sink = m.size(); },
+                () -> { long s = 0; for (String k : lookups) s += hashMap.get(k); sink = s; },
+                () -> { long s = 0; for (Map.Entry<String, Integer> e : hashMap.entrySet()) s += e.getValue(); sink = s; });
+        Map<String, Integer> linkedHashMap = new LinkedHashMap<>(hashMap);
+        report("LinkedHashMap<String,Integer>", n,
+                footprint(n, () -> { Map<String, Integer> m = new LinkedHashMap<>(); for (int i = 0; i < n; i++) m.put(keys[i], ints[i]); return m; }),
+                () -> { Map<String, Integer> m = new LinkedHashMap<>(); for (int i = 0; i < n; i++) m.put(keys[i], ints[i]); sink = m.size(); },
+                () -> { long s = 0; for (String k : lookups) s += linkedHashMap.get(k); sink = s; },
+                () -> { long s = 0; for (Map.Entry<String, Integer> e : linkedHashMap.entrySet()) s += e.getValue(); sink = s; });
+        Map<String, Integer> copyOf = Map.copyOf(hashMap);
+        report("Map.copyOf<String,Integer>", n,
+                footprint(n, () -> { Map<String, Integer> m = new HashMap<>(); for (int i = 0; i < n; i++) m.put(keys[i], ints[i]); return Map.copyOf(m); }),
+                () -> sink = Map.copyOf(hashMap).size(),
+                () -> { long s = 0; for (String k : lookups) s += copyOf.get(k); sink = s; },
+                () -> { long s = 0; for (Map.Entry<String, Integer> e : copyOf.entrySet()) s += e.getValue(); sink = s; });
+        ObjectIntMap<String> objectInt = new ObjectIntMap<>(n, -1);
+        for (int i = 0; i < n; i++) objectInt.put(keys[i], ints[i]);
+        report("ObjectIntMap<String>", n,
+                footprint(n, () -> { ObjectIntMap<String> m = new ObjectIntMap<>(16, -1); for (int i = 0; i < n; i++) m.put(keys[i], ints[i]); return m; }),
+                () -> { ObjectIntMap<String> m = new ObjectIntMap<>(16, -1); for (int i = 0; i < n; i++) m.put(keys[i], ints[i]); sink = m.size(); },
+                () -> { long s = 0; for (String k : lookups) s += objectInt.get(k); sink = s; },
+                () -> { long[] s = {0}; objectInt.forEach((k, v) -> s[0] += v); sink = s[0]; });
+        LinkedObjectIntMap<String> linkedInt = new LinkedObjectIntMap<>(n, -1);
+        for (int i = 0; i < n; i++) linkedInt.put(keys[i], ints[i]);
+        report("LinkedObjectIntMap<String>", n,
+                footprint(n, () -> { LinkedObjectIntMap<String> m = new LinkedObjectIntMap<>(16, -1); for (int i = 0; i < n; i++) m.put(keys[i], ints[i]); return m; }),
+                () -> { LinkedObjectIntMap<String> m = new LinkedObjectIntMap<>(16, -1); for (int i = 0; i < n; i++) m.put(keys[i], ints[i]); sink = m.size(); },
+                () -> { long s = 0; for (String k : lookups) s += linkedInt.get(k); sink = s; },
+                () -> { long[] s = {0}; linkedInt.forEach((k, v) -> s[0] += v); sink = s[0]; });
+
+        int[] intLookups = ints.clone();
+        Random rnd = new Random(1);
+        for (int i = n - 1; i > 0; i--) { int j = rnd.nextInt(i + 1); int t = intLookups[i]; intLookups[i] = intLookups[j]; intLookups[j] = t; }
+        Map<Integer, Integer> boxed = new HashMap<>();
+        for (int v : ints) boxed.put(v, v);
+        report("HashMap<Integer,Integer>", n,
+                footprint(n, () -> { Map<Integer, Integer> m = new HashMap<>(); for (int v : ints) m.put(v, v); return m; }),
+                () -> { Map<Integer, Integer> m = new HashMap<>(); for (int v : ints) m.put(v, v); sink = m.size(); },
+                () -> { long s = 0; for (int k : intLookups) s += boxed.get(k); sink = s; },
+                () -> { long s = 0; for (Map.Entry<Integer, Integer> e : boxed.entrySet()) s += e.getValue(); sink = s; });
+        IntIntMap intInt = new IntIntMap(n, -1);
+        for (int v : ints) intInt.put(v, v);
+        report("IntIntMap", n,
+                footprint(n, () -> { IntIntMap m = new IntIntMap(16, -1); for (int v : ints) m.put(v, v); return m; }),
+                () -> { IntIntMap m = new IntIntMap(16, -1); for (int v : ints) m.put(v, v); sink = m.size(); },
+                () -> { long s = 0; for (int k : intLookups) s += intInt.get(k); sink = s; },
+                () -> { long[] s = {0}; intInt.forEach((k, v) -> s[0] += v); sink = s[0]; });
+    }
+
+    static void report(String name, int n, double bytesPerEntry, Runnable put, Runnable get, Runnable iterate) {
+        System.out.printf(Locale.ROOT, "%-30s %12.1f %10.1f %10.1f %10.1f%n",
+                name, bytesPerEntry, nsPerOp(n, put), nsPerOp(n, get), nsPerOp(n, iterate));
+    }
+}
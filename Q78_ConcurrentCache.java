@@ -0,0 +1,684 @@
+// Q78: Concurrent bounded cache with W-TinyLFU admission (builds on the LinkedHashMap ordering of Q49)
+// Java example (requires Java 21 or later, uses Q57_ConcurrencyBenchmarks and Q72_TimerWheelScheduler)
+//
+// Question: a LinkedHashMap in access order with removeEldestEntry is an LRU cache. Why is that not good enough
+// for a shared, heavily used cache?
+// Answer: two reasons. (1) Every get() reorders the linked list, so the map needs a global lock even for reads.
+// (2) LRU admits every new key: one scan over keys that are never used again flushes the whole hot set.
+// This cache
+//  - keeps entries in a ConcurrentHashMap and only *records* reads in small lossy striped buffers and writes in a
+//    bounded write buffer; the policy bookkeeping is replayed in batches under a tryLock, so readers never block
+//    and a writer blocks only when the write buffer is full,
+//  - splits capacity into a small LRU "window" (1%) and a segmented LRU main area (probation + protected 80%),
+//  - uses a 4-bit count-min sketch of recent access frequencies as admission filter (TinyLFU): an entry leaving
+//    the window replaces the main area's victim only if it was accessed more often, so scans do not pollute it,
+//  - bounds total weight (a Weigher per entry, size = weight 1 by default),
+//  - expires entries after write and/or access with a hashed timing wheel (the Q72 structure) advanced during
+//    maintenance; readers treat an expired entry as absent right away,
+//  - coalesces concurrent loads of the same key into one loader call, and counts hits/misses/evictions.
+// The design follows Caffeine (Ben Manes), simplified.
+//
+// Run:  java Q78_ConcurrentCache [warmupMs] [measureMs] [maxThreads]
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.*;
+
+public class Q78_ConcurrentCache {
+
+    public interface Weigher<K, V> {
+        int weigh(K key, V value);
+    }
+
+    public record Stats(long hits, long misses, long loads, long loadFailures, long coalescedLoads,
+                        long evictions, long evictedWeight, long expirations) {
+        public double hitRate() {
+            long requests = hits + misses;
+            return requests == 0 ? 1.0 : (double) hits / requests;
+        }
+    }
+
+    // 4-bit count-min sketch: 16 counters per long, 4 rows, all counters halved every 10 * capacity additions
+    // so that old popularity fades out.
+    static final class FrequencySketch {
+        private static final long[] SEEDS = {0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L};
+        private static final long RESET_MASK = 0x7777777777777777L;
+        private final long[] table;
+        private final int mask, sampleSize;
+        private int additions;
+
+        FrequencySketch(long maximumSize) {
+            int n = (int) Math.min(1 << 24, Long.highestOneBit(Math.max(16, maximumSize) - 1) << 1);
+            table = new long[n];
+            mask = n - 1;
+            sampleSize = 10 * n;
+        }
+
+        private static int spread(int h) {
+            h *= 0x9E3779B9;
+            return h ^ (h >>> 17);
+        }
+
+        private int indexOf(int h, int row) {
+            long x = (h + SEEDS[row]) * SEEDS[row];
+            x += x >>> 32;
+            return (int) x & mask;
+        }
+
+        int frequency(Object key) {
+            int h = spread(key.hashCode()), start = (h & 3) << 2, min = 15;
+            for (int i = 0; i < 4; i++) {
+                int offset = (start + i) << 2;
+                min = Math.min(min, (int) ((table[indexOf(h, i)] >>> offset) & 15));
+            }
+            return min;
+        }
+
+        void increment(Object key) {
+            int h = spread(key.hashCode()), start = (h & 3) << 2;
+            boolean added = false;
+            for (int i = 0; i < 4; i++) {
+                int index = indexOf(h, i), offset = (start + i) << 2;
+                if (((table[index] >>> offset) & 15) != 15) {
+                    table[index] += 1L << offset;
+                    added = true;
+                }
+            }
+            if (added && ++additions == sampleSize) {
+                for (int i = 0; i < table.length; i++) table[i] = (table[i] >>> 1) & RESET_MASK;
+                additions /= 2;
+            }
+        }
+    }
+
+    static final int NONE = 0, WINDOW = 1, PROBATION = 2, PROTECTED = 3;
+
+    static final class Node<K, V> {
+        final K key;
+        volatile V value;
+        volatile int weight;
+        volatile long writeTime, accessTime;
+        volatile boolean alive = true;
+        // owned by the policy (guarded by the eviction lock)
+        int queue = NONE, policyWeight;
+        long rounds;
+        Node<K, V> prev, next, wheelPrev, wheelNext;
+
+        Node(K key, V value, int weight, long now) {
+            this.key = key;
+            this.value = value;
+            this.weight = weight;
+            this.writeTime = this.accessTime = now;
+        }
+    }
+
+    // Intrusive doubly linked access-order list with a sentinel; no node objects of its own
+    static final class AccessOrder<K, V> {
+        final Node<K, V> head = new Node<>(null, null, 0, 0);
+        long weight;
+
+        AccessOrder() { head.prev = head.next = head; }
+
+        Node<K, V> first() { return head.next == head ? null : head.next; }
+
+        void addLast(Node<K, V> n) {
+            n.prev = head.prev;
+            n.next = head;
+            head.prev.next = n;
+            head.prev = n;
+            weight += n.policyWeight;
+        }
+
+        void remove(Node<K, V> n) {
+            n.prev.next = n.next;
+            n.next.prev = n.prev;
+            n.prev = n.next = null;
+            weight -= n.policyWeight;
+        }
+
+        void moveToEnd(Node<K, V> n) {
+            remove(n);
+            addLast(n);
+        }
+
+        // Node after n in access order, or null at the end
+        Node<K, V> after(Node<K, V> n) { return n.next == head ? null : n.next; }
+    }
+
+    // Lossy single-consumer ring per stripe: a full stripe drops the read event (only LRU precision suffers)
+    static final class ReadBuffer<K, V> {
+        static final int SIZE = 32, MASK = SIZE - 1;
+        final AtomicReferenceArray<Node<K, V>> slots = new AtomicReferenceArray<>(SIZE);
+        final AtomicLong writeCount = new AtomicLong(), readCount = new AtomicLong();
+
+        // false when the stripe is full and should be drained
+        boolean offer(Node<K, V> n) {
+            long tail = writeCount.get();
+            if (tail - readCount.get() >= SIZE) return false;
+            if (writeCount.compareAndSet(tail, tail + 1)) slots.lazySet((int) tail & MASK, n);
+            return true;
+        }
+
+        void drainTo(Consumer<Node<K, V>> onAccess) {
+            long head = readCount.get(), tail = writeCount.get();
+            for (; head < tail; head++) {
+                int i = (int) head & MASK;
+                Node<K, V> n = slots.get(i);
+                if (n == null) break; // claimed but not yet written; picked up next time
+                slots.lazySet(i, null);
+                onAccess.accept(n);
+            }
+            readCount.lazySet(head);
+        }
+    }
+
+    public static final class ConcurrentCache<K, V> {
+        private static final int WHEEL_SIZE = 256;
+        // Writes are applied to the policy in batches: a writer tries to drain after WRITE_BATCH pending writes
+        // and must drain (blocking on the lock) at WRITE_BUFFER_MAX, which bounds the buffer. Until then the
+        // policy lags behind the map, so the cache may briefly hold up to WRITE_BUFFER_MAX entries too many.
+        private static final int WRITE_BATCH = 64, WRITE_BUFFER_MAX = 1_024;
+
+        private final ConcurrentHashMap<K, Node<K, V>> map = new ConcurrentHashMap<>();
+        private final ConcurrentHashMap<K, CompletableFuture<V>> loading = new ConcurrentHashMap<>();
+        private final long maximumWeight;
+        private final Weigher<? super K, ? super V> weigher;
+        private final long expireAfterWriteNanos, expireAfterAccessNanos; // 0 = never
+        private final LongSupplier ticker;
+
+        private final ReadBuffer<K, V>[] readBuffers;
+        private final Queue<Runnable> writeBuffer = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger pendingWrites = new AtomicInteger(); // tasks in writeBuffer, approximately
+        private volatile boolean drainPending; // a drain was requested while another thread held the lock
+        private final ReentrantLock evictionLock = new ReentrantLock();
+
+        // Policy state, guarded by evictionLock
+        private final AccessOrder<K, V> window = new AccessOrder<>(), probation = new AccessOrder<>(), protectedQ = new AccessOrder<>();
+        private final FrequencySketch sketch;
+        private final long windowMaximum, protectedMaximum;
+        private long totalWeight;
+        private final Node<K, V>[] wheel;
+        private final long tickNanos;
+        private long wheelTick;
+
+        private final LongAdder hits = new LongAdder(), misses = new LongAdder(), loads = new LongAdder(),
+                loadFailures = new LongAdder(), coalesced = new LongAdder(), evictions = new LongAdder(),
+                evictedWeight = new LongAdder(), expirations = new LongAdder();
+
+        public ConcurrentCache(long maximumSize) {
+            this(maximumSize, (k, v) -> 1, 0, 0, System::nanoTime);
+        }
+
+        @SuppressWarnings({"unchecked", "rawtypes"}) // generic arrays
+        public ConcurrentCache(long maximumWeight, Weigher<? super K, ? super V> weigher,
+                               long expireAfterWriteNanos, long expireAfterAccessNanos, LongSupplier ticker) {
+            this.maximumWeight = maximumWeight;
+            this.weigher = weigher;
+            this.expireAfterWriteNanos = expireAfterWriteNanos;
+            this.expireAfterAccessNanos = expireAfterAccessNanos;
+            this.ticker = ticker;
+            this.windowMaximum = Math.max(1, maximumWeight / 100);
+            this.protectedMaximum = (long) ((maximumWeight - windowMaximum) * 0.8);
+            this.sketch = new FrequencySketch(maximumWeight);
+            int stripes = Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors() * 4 - 1)) << 1;
+            this.readBuffers = new ReadBuffer[stripes];
+            for (int i = 0; i < stripes; i++) readBuffers[i] = new ReadBuffer<>();
+            long shortest = Math.min(expireAfterWriteNanos > 0 ? expireAfterWriteNanos : Long.MAX_VALUE,
+                    expireAfterAccessNanos > 0 ? expireAfterAccessNanos : Long.MAX_VALUE);
+            this.tickNanos = shortest == Long.MAX_VALUE ? 0 : Math.max(TimeUnit.MILLISECONDS.toNanos(1), shortest / 32);
+            this.wheel = new Node[tickNanos == 0 ? 0 : WHEEL_SIZE];
+            for (int i = 0; i < wheel.length; i++) {
+                Node<K, V> sentinel = new Node<>(null, null, 0, 0);
+                sentinel.wheelPrev = sentinel.wheelNext = sentinel;
+                wheel[i] = sentinel;
+            }
+            this.wheelTick = tickNanos == 0 ? 0 : ticker.getAsLong() / tickNanos;
+        }
+
+        // ---- reads: lock-free, record the access and return ----
+
+        public V getIfPresent(K key) {
+            Node<K, V> n = map.get(key);
+            long now = wheel.length > 0 ? ticker.getAsLong() : 0; // no clock read unless something can expire
+            if (n == null || isExpired(n, now)) {
+                misses.increment();
+                if (n != null) scheduleDrain(); // let maintenance remove it
+                return null;
+            }
+            hits.increment();
+            if (expireAfterAccessNanos > 0) n.accessTime = now;
+            ReadBuffer<K, V> buffer = readBuffers[(int) (Thread.currentThread().threadId() * 0x9E3779B9L >>> 16) & (readBuffers.length - 1)];
+            if (!buffer.offer(n)) scheduleDrain();
+            return n.value;
+        }
+
+        // Map lookup without recording the access or counting a hit or miss
+        private V peek(K key) {
+            Node<K, V> n = map.get(key);
+            return n == null || isExpired(n, wheel.length > 0 ? ticker.getAsLong() : 0) ? null : n.value;
+        }
+
+        private boolean isExpired(Node<K, V> n, long now) {
+            return (expireAfterWriteNanos > 0 && now - n.writeTime >= expireAfterWriteNanos)
+                    || (expireAfterAccessNanos > 0 && now - n.accessTime >= expireAfterAccessNanos);
+        }
+
+        // ---- writes: update the map, queue the policy change, try to apply it ----
+
+        public void put(K key, V value) {
+            int weight = weigher.weigh(key, value);
+            long now = wheel.length > 0 ? ticker.getAsLong() : 0;
+            Runnable[] task = new Runnable[2];
+            map.compute(key, (k, old) -> {
+                if (old == null || isExpired(old, now)) {
+                    if (old != null) { // expired: replace it, so it counts as an expiration, not an update
+                        old.alive = false;
+                        task[1] = () -> { onRemove(old); expirations.increment(); };
+                    }
+                    Node<K, V> n = new Node<>(k, value, weight, now);
+                    task[0] = () -> onAdd(n);
+                    return n;
+                }
+                old.value = value;
+                old.weight = weight;
+                old.writeTime = old.accessTime = now;
+                task[0] = () -> onUpdate(old);
+                return old;
+            });
+            if (task[1] != null) afterWrite(task[1]);
+            afterWrite(task[0]);
+        }
+
+        public void invalidate(K key) {
+            Node<K, V> n = map.remove(key);
+            if (n != null) {
+                n.alive = false;
+                afterWrite(() -> onRemove(n));
+            }
+        }
+
+        // Returns the cached value or loads it; concurrent callers for the same key share one load
+        public V get(K key, Function<? super K, ? extends V> loader) {
+            return getAsync(key, k -> CompletableFuture.completedFuture(loader.apply(k))).join();
+        }
+
+        public CompletableFuture<V> getAsync(K key, Function<? super K, ? extends CompletableFuture<? extends V>> loader) {
+            V cached = getIfPresent(key);
+            if (cached != null) return CompletableFuture.completedFuture(cached);
+            CompletableFuture<V> mine = new CompletableFuture<>();
+            CompletableFuture<V> shared = loading.putIfAbsent(key, mine);
+            if (shared != null) {
+                coalesced.increment();
+                return shared;
+            }
+            // A load may have finished between the miss above and our registration: its put() happens before
+            // its loading.remove(), so checking the map again now cannot miss it
+            V raced = peek(key);
+            if (raced != null) {
+                loading.remove(key, mine);
+                mine.complete(raced);
+                return mine;
+            }
+            loads.increment();
+            try {
+                CompletableFuture<? extends V> load = Objects.requireNonNull(loader.apply(key), "loader returned a null future");
+                load.whenComplete((v, ex) -> finishLoad(key, mine, v, ex));
+            } catch (Throwable e) { // like supplyAsync, anything the loader throws ends up in the future
+                finishLoad(key, mine, null, e);
+            }
+            return mine;
+        }
+
+        // Always removes and completes `mine`, whatever fails: otherwise later callers would join it forever
+        private void finishLoad(K key, CompletableFuture<V> mine, V value, Throwable failure) {
+            try {
+                if (failure == null && value == null) failure = new NullPointerException("loader returned null for " + key);
+                if (failure == null) put(key, value); // visible before the waiters are released
+            } catch (Throwable e) { // e.g. from the weigher
+                failure = e;
+            } finally {
+                loading.remove(key, mine);
+                if (failure == null) {
+                    mine.complete(value);
+                } else {
+                    loadFailures.increment();
+                    mine.completeExceptionally(failure);
+                }
+            }
+        }
+
+        public long estimatedSize() { return map.size(); }
+
+        public Stats stats() {
+            return new Stats(hits.sum(), misses.sum(), loads.sum(), loadFailures.sum(), coalesced.sum(),
+                    evictions.sum(), evictedWeight.sum(), expirations.sum());
+        }
+
+        // Applies pending reads/writes and expires due entries; also suitable for a periodic scheduler
+        public void cleanUp() {
+            evictionLock.lock();
+            try {
+                maintenance();
+            } finally {
+                evictionLock.unlock();
+            }
+        }
+
+        private void afterWrite(Runnable task) {
+            writeBuffer.add(task);
+            int pending = pendingWrites.incrementAndGet();
+            if (pending >= WRITE_BUFFER_MAX) {
+                cleanUp(); // buffer full: this writer waits for the lock and drains (backpressure)
+            } else if (pending >= WRITE_BATCH || drainPending) {
+                scheduleDrain();
+            }
+        }
+
+        // Whoever gets the lock drains for everyone. A thread that misses the lock leaves drainPending set, and the
+        // lock holder re-checks it after unlocking, so a requested drain is never lost while the lock was busy.
+        private void scheduleDrain() {
+            do {
+                if (!evictionLock.tryLock()) {
+                    drainPending = true;
+                    return;
+                }
+                try {
+                    drainPending = false;
+                    maintenance();
+                } finally {
+                    evictionLock.unlock();
+                }
+            } while (drainPending);
+        }
+
+        // ---- policy, always under evictionLock ----
+
+        private void maintenance() {
+            for (ReadBuffer<K, V> b : readBuffers) b.drainTo(this::onAccess);
+            Runnable task;
+            int drained = 0;
+            for (; (task = writeBuffer.poll()) != null; drained++) task.run();
+            if (drained > 0) pendingWrites.addAndGet(-drained);
+            if (wheel.length > 0) advanceWheel(ticker.getAsLong());
+            evict();
+        }
+
+        private void onAdd(Node<K, V> n) {
+            if (!n.alive) return; // removed before the policy saw it
+            n.policyWeight = n.weight;
+            totalWeight += n.policyWeight;
+            sketch.increment(n.key);
+            n.queue = WINDOW;
+            window.addLast(n);
+            schedule(n);
+        }
+
+        private void onUpdate(Node<K, V> n) {
+            if (!n.alive || n.queue == NONE) return;
+            AccessOrder<K, V> q = queueOf(n);
+            q.remove(n);
+            totalWeight += n.weight - n.policyWeight;
+            n.policyWeight = n.weight;
+            q.addLast(n);
+            onAccess(n);
+        }
+
+        private void onAccess(Node<K, V> n) {
+            if (!n.alive || n.queue == NONE) return;
+            sketch.increment(n.key);
+            switch (n.queue) {
+                case WINDOW -> window.moveToEnd(n);
+                case PROBATION -> { // second hit: promote, demoting protected LRU entries if it overflows
+                    probation.remove(n);
+                    n.queue = PROTECTED;
+                    protectedQ.addLast(n);
+                    Node<K, V> d;
+                    while (protectedQ.weight > protectedMaximum && (d = protectedQ.first()) != null) {
+                        protectedQ.remove(d);
+                        d.queue = PROBATION;
+                        probation.addLast(d);
+                    }
+                }
+                case PROTECTED -> protectedQ.moveToEnd(n);
+                default -> { }
+            }
+            if (expireAfterAccessNanos > 0) schedule(n);
+        }
+
+        private void onRemove(Node<K, V> n) {
+            if (n.queue == NONE) return;
+            queueOf(n).remove(n);
+            n.queue = NONE;
+            totalWeight -= n.policyWeight;
+            unschedule(n);
+        }
+
+        private AccessOrder<K, V> queueOf(Node<K, V> n) {
+            return n.queue == WINDOW ? window : n.queue == PROBATION ? probation : protectedQ;
+        }
+
+        // Window overflow moves to probation as candidates; while over the bound, each candidate competes with the
+        // probation LRU victim and the one with the lower sketch frequency is evicted.
+        private void evict() {
+            Node<K, V> candidate = null;
+            while (window.weight > windowMaximum) {
+                Node<K, V> n = window.first();
+                window.remove(n);
+                n.queue = PROBATION;
+                probation.addLast(n);
+                if (candidate == null) candidate = n;
+            }
+            while (totalWeight > maximumWeight) {
+                Node<K, V> victim = probation.first();
+                if (victim == null) victim = protectedQ.first();
+                if (victim == null) victim = window.first();
+                if (victim == null) break;
+                if (candidate == null || candidate == victim || candidate.queue != PROBATION) {
+                    if (candidate == victim) candidate = probation.after(victim);
+                    evictNode(victim);
+                } else if (sketch.frequency(candidate.key) > sketch.frequency(victim.key)) {
+                    evictNode(victim);
+                } else {
+                    Node<K, V> next = probation.after(candidate);
+                    evictNode(candidate);
+                    candidate = next;
+                }
+            }
+        }
+
+        private void evictNode(Node<K, V> n) {
+            int w = n.policyWeight;
+            onRemove(n);
+            if (map.remove(n.key, n)) { // identity: a concurrent replacement of the key is left alone
+                n.alive = false;
+                evictions.increment();
+                evictedWeight.add(w);
+            }
+        }
+
+        // Timing wheel: bucket = deadline tick mod WHEEL_SIZE, rounds = full revolutions still to wait
+        private long deadline(Node<K, V> n) {
+            long d = Long.MAX_VALUE;
+            if (expireAfterWriteNanos > 0) d = n.writeTime + expireAfterWriteNanos;
+            if (expireAfterAccessNanos > 0) d = Math.min(d, n.accessTime + expireAfterAccessNanos);
+            return d;
+        }
+
+        private void schedule(Node<K, V> n) {
+            if (wheel.length == 0) return;
+            unschedule(n);
+            long ticks = Math.max(wheelTick, (deadline(n) + tickNanos - 1) / tickNanos);
+            n.rounds = (ticks - wheelTick) / WHEEL_SIZE;
+            Node<K, V> sentinel = wheel[(int) (ticks & (WHEEL_SIZE - 1))];
+            n.wheelPrev = sentinel.wheelPrev;
+            n.wheelNext = sentinel;
+            sentinel.wheelPrev.wheelNext = n;
+            sentinel.wheelPrev = n;
+        }
+
+        private void unschedule(Node<K, V> n) {
+            if (n.wheelNext == null) return;
+            n.wheelPrev.wheelNext = n.wheelNext;
+            n.wheelNext.wheelPrev = n.wheelPrev;
+            n.wheelPrev = n.wheelNext = null;
+        }
+
+        private void advanceWheel(long now) {
+            long target = now / tickNanos;
+            for (int steps = 0; wheelTick <= target && steps < WHEEL_SIZE; wheelTick++, steps++) {
+                Node<K, V> sentinel = wheel[(int) (wheelTick & (WHEEL_SIZE - 1))];
+                for (Node<K, V> n = sentinel.wheelNext; n != sentinel; ) {
+                    Node<K, V> next = n.wheelNext;
+                    if (n.rounds > 0) {
+                        n.rounds--;
+                    } else if (isExpired(n, now)) {
+                        onRemove(n);
+                        if (map.remove(n.key, n)) {
+                            n.alive = false;
+                            expirations.increment();
+                        }
+                    } else if (n.alive) {
+                        schedule(n); // accessed or rewritten since it was scheduled: move to its new deadline
+                    }
+                    n = next;
+                }
+            }
+            if (wheelTick <= target) wheelTick = target; // idle for more than a revolution: rounds were counted from here
+        }
+    }
+
+    // Q49 pattern made thread-safe the usual way: access-ordered LinkedHashMap behind one lock
+    static <K, V> Map<K, V> synchronizedLru(int maximumSize) {
+        return Collections.synchronizedMap(new LinkedHashMap<K, V>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+                return size() > maximumSize;
+            }
+        });
+    }
+
+    // Zipf-distributed keys over [0, n): key i has probability proportional to 1 / (i + 1)^s
+    static int[] zipfTrace(int n, double s, int length, long seed) {
+        double[] cdf = new double[n];
+        double sum = 0;
+        for (int i = 0; i < n; i++) cdf[i] = sum += 1 / Math.pow(i + 1, s);
+        Random rnd = new Random(seed);
+        int[] trace = new int[length];
+        for (int i = 0; i < length; i++) {
+            int k = Arrays.binarySearch(cdf, rnd.nextDouble() * sum);
+            trace[i] = k >= 0 ? k : -k - 1;
+        }
+        return trace;
+    }
+
+    // Zipf traffic interrupted by long scans over keys that are touched exactly once
+    static int[] scanTrace(int n, int length, long seed) {
+        int[] trace = zipfTrace(n, 0.9, length, seed);
+        int scanKey = n;
+        for (int i = 0; i + 6_000 < length; i += 20_000) {
+            for (int j = 0; j < 6_000; j++) trace[i + j] = scanKey++;
+        }
+        return trace;
+    }
+
+    static double hitRate(int[] trace, Predicate<Integer> getOrPut) {
+        int hits = 0;
+        for (int k : trace) if (getOrPut.test(k)) hits++;
+        return (double) hits / trace.length;
+    }
+
+    static void compare(String name, int[] trace, int size) {
+        Map<Integer, Integer> lru = synchronizedLru(size);
+        double lruRate = hitRate(trace, k -> {
+            if (lru.get(k) != null) return true;
+            lru.put(k, k);
+            return false;
+        });
+        ConcurrentCache<Integer, Integer> cache = new ConcurrentCache<>(size);
+        double cacheRate = hitRate(trace, k -> {
+            if (cache.getIfPresent(k) != null) return true;
+            cache.put(k, k);
+            return false;
+        });
+        System.out.printf(Locale.ROOT, "%-28s size=%,6d  LinkedHashMap LRU hit rate %5.1f%%   W-TinyLFU %5.1f%%   (evictions %,d)%n",
+                name, size, 100 * lruRate, 100 * cacheRate, cache.stats().evictions());
+    }
+
+    public static void main(String[] args) throws Exception {
+        long warmup = args.length > 0 ? Long.parseLong(args[0]) : 300;
+        long measure = args.length > 1 ? Long.parseLong(args[1]) : 1000;
+        int maxThreads = args.length > 2 ? Integer.parseInt(args[2]) : Math.max(2, Runtime.getRuntime().availableProcessors());
+
+        // Request coalescing: 50 concurrent callers, one slow load
+        ConcurrentCache<String, String> users = new ConcurrentCache<>(1_000);
+        AtomicInteger loaderCalls = new AtomicInteger();
+        ExecutorService callers = Executors.newVirtualThreadPerTaskExecutor();
+        List<Future<String>> results = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            results.add(callers.submit(() -> users.get("alice", k -> {
+                loaderCalls.incrementAndGet();
+                sleep(100);
+                return "Alice";
+            })));
+        }
+        for (Future<String> f : results) f.get();
+        callers.shutdown();
+        System.out.println("50 concurrent gets, loader called " + loaderCalls.get() + " time(s); " + users.stats());
+
+        // A failing loader (even an Error or a null future) must not leave the key stuck in "loading"
+        for (Function<String, CompletableFuture<String>> broken : List.<Function<String, CompletableFuture<String>>>of(
+                k -> { throw new StackOverflowError("simulated"); }, k -> null)) {
+            try {
+                users.getAsync("bob", broken).get(1, TimeUnit.SECONDS);
+            } catch (ExecutionException expected) {
+                // the failure is reported through the future
+            }
+        }
+        System.out.println("after failed loads: " + users.get("bob", k -> "Bob"));
+
+        // Expire after write on the timing wheel, with periodic cleanUp() on the Q72 scheduler
+        Q72_TimerWheelScheduler.TimerWheelScheduler scheduler = new Q72_TimerWheelScheduler.TimerWheelScheduler(
+                10, TimeUnit.MILLISECONDS, 64, Executors.newSingleThreadExecutor());
+        ConcurrentCache<String, String> sessions = new ConcurrentCache<>(1_000, (k, v) -> 1,
+                TimeUnit.MILLISECONDS.toNanos(200), 0, System::nanoTime);
+        scheduler.scheduleWithFixedDelay(sessions::cleanUp, 50, 50, TimeUnit.MILLISECONDS);
+        for (int i = 0; i < 100; i++) sessions.put("s" + i, "token");
+        Thread.sleep(400);
+        System.out.println("after 400 ms with 200 ms expiry: size=" + sessions.estimatedSize()
+                + " expirations=" + sessions.stats().expirations());
+        scheduler.shutdownNow();
+
+        // Trace-driven hit rates
+        int keys = 100_000, length = 2_000_000;
+        int[] zipf = zipfTrace(keys, 0.9, length, 1);
+        int[] scans = scanTrace(keys, length, 2);
+        for (int size : new int[]{1_000, 10_000}) {
+            compare("zipf(0.9)", zipf, size);
+            compare("zipf(0.9) + one-time scans", scans, size);
+        }
+
+        // Throughput: every thread replays the Zipf trace from its own offset, loading on a miss
+        Q57_ConcurrencyBenchmarks.Harness h = new Q57_ConcurrencyBenchmarks.Harness(warmup, measure);
+        int mask = Integer.highestOneBit(length) - 1;
+        for (int threads : Q57_ConcurrencyBenchmarks.threadCounts(maxThreads)) {
+            int[] cursor = new int[threads * 16];
+            for (int t = 0; t < threads; t++) cursor[t * 16] = t * 7_919;
+            Map<Integer, Integer> lru = synchronizedLru(10_000);
+            h.run("Q78.synchronizedLinkedHashMap", Q57_ConcurrencyBenchmarks.params("size", 10_000), threads, t -> {
+                int k = zipf[cursor[t * 16]++ & mask];
+                if (lru.get(k) == null) lru.put(k, k);
+            });
+            ConcurrentCache<Integer, Integer> cache = new ConcurrentCache<>(10_000);
+            h.run("Q78.wTinyLfuCache", Q57_ConcurrencyBenchmarks.params("size", 10_000), threads, t -> {
+                int k = zipf[cursor[t * 16]++ & mask];
+                if (cache.getIfPresent(k) == null) cache.put(k, k);
+            });
+        }
+    }
+
+    static void sleep(long ms) {
+        try { Thread.sleep(ms); } catch (InterruptedException e) { Thread.currentThread().interrupt(); }
+    }
+}
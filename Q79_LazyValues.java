@@ -0,0 +1,266 @@
+// Q79: Memoized lazy values, expiring values with refresh-ahead, and per-key memoization (builds on Q08)
+// Java example (requires Java 21 or later, uses Q57_ConcurrencyBenchmarks for the benchmark)
+//
+// Question: Q08 shows that orElse(expensive()) always evaluates expensive(), and orElseGet fixes that. But
+// orElseGet still recomputes the default on every empty Optional. How do you compute a value at most once,
+// lazily, and safely from many threads?
+// Answer: a memoizing Supplier. The fast path is a single acquire read of an already published field, with no
+// lock. Only the first callers take a lock, check again ("double-checked"), run the supplier once and publish
+// the result with a release store; after that nobody locks again. Variants:
+//  - racy: no lock at all; concurrent first callers may each compute, and the first CAS wins (fine for cheap,
+//    pure suppliers where blocking would cost more than a duplicate computation),
+//  - expiring: recomputed after a TTL; inside the refresh-ahead window the old value is still returned while one
+//    background task computes the new one, so callers never wait on a refresh,
+//  - keyed: memoize(f) remembers f(k) per argument, computing each key once even under concurrent calls.
+// Passing a Lazy to orElseGet computes the default at most once for the whole program.
+//
+// Run:  java Q79_LazyValues [warmupMs] [measureMs] [maxThreads]
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import java.util.function.*;
+
+public class Q79_LazyValues {
+
+    // Computes on the first get() and returns the same value afterwards; the supplier runs exactly once unless it
+    // throws, in which case the exception propagates and the next get() tries again.
+    public static final class Lazy<T> implements Supplier<T> {
+        private static final VarHandle VALUE;
+        static {
+            try {
+                VALUE = MethodHandles.lookup().findVarHandle(Lazy.class, "value", Object.class);
+            } catch (ReflectiveOperationException e) {
+                throw new ExceptionInInitializerError(e);
+            }
+        }
+
+        private Supplier<? extends T> supplier; // cleared once computed, so it can be garbage collected
+        private Object value;                   // null until computed (the result itself must not be null)
+
+        public Lazy(Supplier<? extends T> supplier) { this.supplier = Objects.requireNonNull(supplier); }
+
+        public static <T> Lazy<T> of(Supplier<? extends T> supplier) { return new Lazy<>(supplier); }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public T get() {
+            Object v = VALUE.getAcquire(this);
+            return v != null ? (T) v : initialize();
+        }
+
+        @SuppressWarnings("unchecked")
+        private synchronized T initialize() {
+            Object v = value;
+            if (v == null) {
+                v = Objects.requireNonNull(supplier.get(), "lazy supplier returned null");
+                VALUE.setRelease(this, v);
+                supplier = null;
+            }
+            return (T) v;
+        }
+
+        public boolean isComputed() { return VALUE.getAcquire(this) != null; }
+    }
+
+    // Lock-free: racing first callers may all compute, the first published value wins and is returned to all
+    public static final class RacyLazy<T> implements Supplier<T> {
+        private final Supplier<? extends T> supplier;
+        private final AtomicReference<T> value = new AtomicReference<>();
+
+        public RacyLazy(Supplier<? extends T> supplier) { this.supplier = Objects.requireNonNull(supplier); }
+
+        @Override
+        public T get() {
+            T v = value.getAcquire();
+            if (v != null) return v;
+            T computed = Objects.requireNonNull(supplier.get(), "lazy supplier returned null");
+            return value.compareAndExchange(null, computed) instanceof T winner ? winner : computed;
+        }
+    }
+
+    // Value with a time to live. After `refreshAfter` a single background refresh is started and callers keep
+    // getting the current value; only after `expireAfter` (or on the first call) do callers block to compute.
+    public static final class ExpiringLazy<T> implements Supplier<T> {
+        private record Entry<T>(T value, long refreshAt, long expiresAt) {}
+
+        private final Supplier<? extends T> supplier;
+        private final long refreshAfterNanos, expireAfterNanos;
+        private final Executor refresher;
+        private final AtomicBoolean refreshing = new AtomicBoolean();
+        private volatile Entry<T> entry;
+
+        public ExpiringLazy(Supplier<? extends T> supplier, long refreshAfter, long expireAfter, TimeUnit unit, Executor refresher) {
+            if (refreshAfter > expireAfter) throw new IllegalArgumentException("refreshAfter must not exceed expireAfter");
+            this.supplier = supplier;
+            this.refreshAfterNanos = unit.toNanos(refreshAfter);
+            this.expireAfterNanos = unit.toNanos(expireAfter);
+            this.refresher = refresher;
+        }
+
+        @Override
+        public T get() {
+            Entry<T> e = entry;
+            long now = System.nanoTime();
+            if (e != null && now - e.refreshAt() < 0) return e.value();
+            if (e != null && now - e.expiresAt() < 0) {
+                if (refreshing.compareAndSet(false, true)) {
+                    try {
+                        refresher.execute(() -> {
+                            try {
+                                entry = compute();
+                            } catch (RuntimeException ex) {
+                                // keep serving the current value; the next call after refreshAt retries
+                            } finally {
+                                refreshing.set(false);
+                            }
+                        });
+                    } catch (RejectedExecutionException ex) {
+                        refreshing.set(false);
+                    }
+                }
+                return e.value();
+            }
+            return computeBlocking();
+        }
+
+        private synchronized T computeBlocking() {
+            Entry<T> e = entry;
+            if (e != null && System.nanoTime() - e.expiresAt() < 0) return e.value(); // another caller got here first
+            e = compute();
+            entry = e;
+            return e.value();
+        }
+
+        private Entry<T> compute() {
+            T v = supplier.get();
+            long now = System.nanoTime();
+            return new Entry<>(v, now + refreshAfterNanos, now + expireAfterNanos);
+        }
+
+        public void invalidate() { entry = null; }
+    }
+
+    // Per-argument memoization of a pure function. The Lazy is created inside computeIfAbsent (cheap), but f runs
+    // outside of the map's bin lock, so a slow f does not block other keys and may itself call the memoizer.
+    public static <K, V> Function<K, V> memoize(Function<? super K, ? extends V> f) {
+        ConcurrentHashMap<K, Lazy<V>> results = new ConcurrentHashMap<>();
+        return key -> {
+            Lazy<V> lazy = results.get(key); // fast path without locking the bin
+            if (lazy == null) lazy = results.computeIfAbsent(key, k -> new Lazy<>(() -> f.apply(k)));
+            return lazy.get();
+        };
+    }
+
+    // For comparison: the common "synchronized getter" that locks on every call
+    static final class SynchronizedLazy<T> implements Supplier<T> {
+        private final Supplier<? extends T> supplier;
+        private T value;
+
+        SynchronizedLazy(Supplier<? extends T> supplier) { this.supplier = supplier; }
+
+        @Override
+        public synchronized T get() {
+            if (value == null) value = supplier.get();
+            return value;
+        }
+    }
+
+    static final AtomicInteger expensiveCalls = new AtomicInteger();
+
+    static String expensive() {
+        expensiveCalls.incrementAndGet();
+        Q57_ConcurrencyBenchmarks.Blackhole.consume(Q57_ConcurrencyBenchmarks.work(2_000));
+        return "default";
+    }
+
+    // `threads` callers released together call get() on a fresh value; returns {avg micros per race, avg computations}
+    static double[] race(Supplier<Supplier<String>> factory, int threads, int rounds) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        long totalNanos = 0;
+        int before = expensiveCalls.get();
+        for (int r = 0; r < rounds; r++) {
+            Supplier<String> s = factory.get();
+            CyclicBarrier start = new CyclicBarrier(threads);
+            List<Future<Long>> done = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                done.add(pool.submit(() -> {
+                    start.await();
+                    long t0 = System.nanoTime();
+                    s.get();
+                    return System.nanoTime() - t0;
+                }));
+            }
+            long slowest = 0;
+            for (Future<Long> f : done) slowest = Math.max(slowest, f.get());
+            totalNanos += slowest;
+        }
+        pool.shutdown();
+        return new double[]{totalNanos / 1e3 / rounds, (double) (expensiveCalls.get() - before) / rounds};
+    }
+
+    public static void main(String[] args) throws Exception {
+        long warmup = args.length > 0 ? Long.parseLong(args[0]) : 300;
+        long measure = args.length > 1 ? Long.parseLong(args[1]) : 1000;
+        int maxThreads = args.length > 2 ? Integer.parseInt(args[2]) : Math.max(2, Runtime.getRuntime().availableProcessors());
+
+        // Q08 again: orElseGet with a shared Lazy computes the default once, however many empty Optionals there are
+        Lazy<String> defaultValue = Lazy.of(Q79_LazyValues::expensive);
+        for (int i = 0; i < 3; i++) {
+            Optional<String> empty = Optional.empty();
+            System.out.println(empty.orElseGet(defaultValue));
+        }
+        System.out.println("expensive() calls: " + expensiveCalls.get()); // 1
+
+        // Keyed memoization of a pure function
+        Function<Integer, Long> slowSquare = memoize(n -> { expensiveCalls.incrementAndGet(); return (long) n * n; });
+        int calls = expensiveCalls.get();
+        for (int i = 0; i < 1_000; i++) slowSquare.apply(i % 10);
+        System.out.println("memoized 1000 calls over 10 keys, function ran " + (expensiveCalls.get() - calls) + " times");
+
+        // Refresh-ahead: after 50 ms a background refresh starts, callers never wait on it
+        AtomicInteger version = new AtomicInteger();
+        ExecutorService refresher = Executors.newVirtualThreadPerTaskExecutor();
+        ExpiringLazy<String> config = new ExpiringLazy<>(() -> "config-v" + version.incrementAndGet(),
+                50, 10_000, TimeUnit.MILLISECONDS, refresher);
+        System.out.println(config.get());
+        for (int cycle = 1; cycle <= 2; cycle++) { // the first cycle also pays for class loading and thread start-up
+            Thread.sleep(60);
+            long t0 = System.nanoTime();
+            String stale = config.get();
+            long micros = (System.nanoTime() - t0) / 1_000;
+            Thread.sleep(20);
+            if (cycle == 2) System.out.printf("%s returned in %d us while refreshing; afterwards: %s%n", stale, micros, config.get());
+        }
+        refresher.shutdown();
+
+        Q57_ConcurrencyBenchmarks.Harness h = new Q57_ConcurrencyBenchmarks.Harness(warmup, measure);
+        Supplier<String> cheap = () -> "v";
+        // First access: construct + first get()
+        h.run("Q79.firstAccess.lazy", Q57_ConcurrencyBenchmarks.params(), 1, t -> new Lazy<>(cheap).get());
+        h.run("Q79.firstAccess.racyLazy", Q57_ConcurrencyBenchmarks.params(), 1, t -> new RacyLazy<>(cheap).get());
+        h.run("Q79.firstAccess.synchronized", Q57_ConcurrencyBenchmarks.params(), 1, t -> new SynchronizedLazy<>(cheap).get());
+        // Steady state: already computed, read from many threads
+        Lazy<String> lazy = Lazy.of(cheap);
+        RacyLazy<String> racy = new RacyLazy<>(cheap);
+        SynchronizedLazy<String> sync = new SynchronizedLazy<>(cheap);
+        Function<Integer, Long> memo = memoize(n -> (long) n * n);
+        for (int threads : Q57_ConcurrencyBenchmarks.threadCounts(maxThreads)) {
+            h.run("Q79.steady.lazy", Q57_ConcurrencyBenchmarks.params(), threads, t -> lazy.get());
+            h.run("Q79.steady.racyLazy", Q57_ConcurrencyBenchmarks.params(), threads, t -> racy.get());
+            h.run("Q79.steady.synchronized", Q57_ConcurrencyBenchmarks.params(), threads, t -> sync.get());
+            h.run("Q79.steady.memoize", Q57_ConcurrencyBenchmarks.params("keys", 1024), threads,
+                    t -> h.consume(t, memo.apply(ThreadLocalRandom.current().nextInt(1024))));
+        }
+
+        // Initialization race: how long until every caller has the value, and how often expensive() ran
+        for (int threads : new int[]{2, 8, 32}) {
+            double[] l = race(() -> Lazy.of(Q79_LazyValues::expensive), threads, 200);
+            double[] r = race(() -> new RacyLazy<>(Q79_LazyValues::expensive), threads, 200);
+            System.out.printf(Locale.ROOT, "init race %2d threads: Lazy %7.1f us, %.2f computations | RacyLazy %7.1f us, %.2f computations%n",
+                    threads, l[0], l[1], r[0], r[1]);
+        }
+    }
+}
@@ -0,0 +1,196 @@
+// Q80: Allocation-free "maybe" values for hot paths (alternative to Optional in Q07, Q08)
+// Java example (requires Java 14 or later for the allocation counter; the Maybe helpers themselves need Java 8)
+//
+// Question: Optional is an object. When does optional.map(...).filter(...).orElse(...) allocate, and what can a
+// tight lookup loop use instead?
+// Answer: every Optional.of / map / filter step creates a new Optional (and Optional<Integer> boxes the int).
+// The JIT removes those allocations only if the whole chain is inlined and escape analysis proves the objects do
+// not escape - which fails with megamorphic lambdas, deep call chains or code that is too large to inline.
+// OptionalInt avoids boxing but has no map/filter. Instead, encode "maybe an int" in a primitive long:
+// bit 32 marks presence and the low 32 bits hold the value, so 0L is empty and every int is representable.
+// For long values, or when a natural "no value" exists (-1 for an index, null for a reference), use that
+// sentinel directly. Nothing is ever allocated, so there is nothing for escape analysis to get wrong.
+// Lambdas passed to map/filter must not capture variables; a capturing lambda is itself an allocation.
+//
+// Run:  java Q80_PrimitiveMaybe [calls]     (exits with an AssertionError if the Maybe paths allocate)
+
+import java.lang.management.ManagementFactory;
+import java.util.*;
+import java.util.function.*;
+
+public class Q80_PrimitiveMaybe {
+
+    // "Maybe int" packed into a long. Use as: long m = MaybeInt.of(42); MaybeInt.orElse(m, 0)
+    public static final class MaybeInt {
+        public static final long EMPTY = 0L;
+        private static final long PRESENT = 1L << 32;
+
+        private MaybeInt() { }
+
+        public static long of(int value) { return PRESENT | (value & 0xFFFF_FFFFL); }
+
+        public static long empty() { return EMPTY; }
+
+        // Maps a sentinel (e.g. -1 from indexOf) to empty
+        public static long ofUnless(int value, int sentinel) { return value == sentinel ? EMPTY : of(value); }
+
+        public static boolean isPresent(long maybe) { return (maybe & PRESENT) != 0; }
+
+        public static int get(long maybe) {
+            if (!isPresent(maybe)) throw new NoSuchElementException("no value present");
+            return (int) maybe;
+        }
+
+        public static long map(long maybe, IntUnaryOperator f) { return isPresent(maybe) ? of(f.applyAsInt((int) maybe)) : EMPTY; }
+
+        public static long flatMap(long maybe, IntToLongFunction f) { return isPresent(maybe) ? f.applyAsLong((int) maybe) : EMPTY; }
+
+        public static long filter(long maybe, IntPredicate p) { return isPresent(maybe) && p.test((int) maybe) ? maybe : EMPTY; }
+
+        public static int orElse(long maybe, int other) { return isPresent(maybe) ? (int) maybe : other; }
+
+        public static int orElseGet(long maybe, IntSupplier other) { return isPresent(maybe) ? (int) maybe : other.getAsInt(); }
+
+        public static OptionalInt toOptional(long maybe) { return isPresent(maybe) ? OptionalInt.of((int) maybe) : OptionalInt.empty(); }
+
+        public static String toString(long maybe) { return isPresent(maybe) ? "MaybeInt[" + (int) maybe + "]" : "MaybeInt.empty"; }
+    }
+
+    // "Maybe long" with a caller-visible sentinel: NONE cannot be stored as a value
+    public static final class MaybeLong {
+        public static final long NONE = Long.MIN_VALUE;
+
+        private MaybeLong() { }
+
+        public static boolean isPresent(long maybe) { return maybe != NONE; }
+
+        public static long map(long maybe, LongUnaryOperator f) { return maybe == NONE ? NONE : f.applyAsLong(maybe); }
+
+        public static long filter(long maybe, LongPredicate p) { return maybe != NONE && p.test(maybe) ? maybe : NONE; }
+
+        public static long orElse(long maybe, long other) { return maybe == NONE ? other : maybe; }
+
+        public static long orElseGet(long maybe, LongSupplier other) { return maybe == NONE ? other.getAsLong() : maybe; }
+    }
+
+    // Nullable references with Optional-like helpers, for code that already uses null as "absent"
+    public static final class Maybe {
+        private Maybe() { }
+
+        public static <T, R> R map(T value, Function<? super T, ? extends R> f) { return value == null ? null : f.apply(value); }
+
+        public static <T> T filter(T value, Predicate<? super T> p) { return value != null && p.test(value) ? value : null; }
+
+        public static <T> T orElse(T value, T other) { return value != null ? value : other; }
+
+        public static <T> T orElseGet(T value, Supplier<? extends T> other) { return value != null ? value : other.get(); }
+    }
+
+    // A lookup table that may not contain the key: the hot path of the examples below
+    static final int[] TABLE = new int[4096];
+    static {
+        for (int i = 0; i < TABLE.length; i++) TABLE[i] = i % 3 == 0 ? -1 : i * 1_000; // -1: no entry
+    }
+
+    static Optional<Integer> findBoxed(int key) {
+        int v = TABLE[key & (TABLE.length - 1)];
+        return v < 0 ? Optional.empty() : Optional.of(v);
+    }
+
+    static OptionalInt findOptionalInt(int key) {
+        int v = TABLE[key & (TABLE.length - 1)];
+        return v < 0 ? OptionalInt.empty() : OptionalInt.of(v);
+    }
+
+    static long find(int key) { return MaybeInt.ofUnless(TABLE[key & (TABLE.length - 1)], -1); }
+
+    static long findLong(int key) {
+        int v = TABLE[key & (TABLE.length - 1)];
+        return v < 0 ? MaybeLong.NONE : v * 3L;
+    }
+
+    static long optionalChain(int calls) {
+        long sum = 0;
+        for (int i = 0; i < calls; i++) sum += findBoxed(i).map(v -> v + 1).filter(v -> (v & 1) == 1).orElse(0);
+        return sum;
+    }
+
+    static long optionalIntChain(int calls) {
+        long sum = 0;
+        for (int i = 0; i < calls; i++) {
+            OptionalInt o = findOptionalInt(i); // no map/filter: spelled out by hand
+            int v = o.isPresent() ? o.getAsInt() + 1 : 0;
+            sum += (v & 1) == 1 ? v : 0;
+        }
+        return sum;
+    }
+
+    static long maybeIntChain(int calls) {
+        long sum = 0;
+        for (int i = 0; i < calls; i++) sum += MaybeInt.orElse(MaybeInt.filter(MaybeInt.map(find(i), v -> v + 1), v -> (v & 1) == 1), 0);
+        return sum;
+    }
+
+    static long maybeLongChain(int calls) {
+        long sum = 0;
+        for (int i = 0; i < calls; i++) sum += MaybeLong.orElse(MaybeLong.filter(MaybeLong.map(findLong(i), v -> v + 1), v -> (v & 1) == 1), 0);
+        return sum;
+    }
+
+    static long threadAllocatedBytes() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean()).getCurrentThreadAllocatedBytes();
+    }
+
+    static volatile long sink;
+
+    // Runs `chain` until JIT-compiled, then reports time and allocated bytes per call on this thread
+    static double[] measure(IntToLongFunction chain, int calls) {
+        for (int i = 0; i < 20; i++) sink += chain.applyAsLong(calls / 10);
+        long bytes = Long.MAX_VALUE, nanos = Long.MAX_VALUE;
+        for (int r = 0; r < 5; r++) {
+            long a0 = threadAllocatedBytes(), t0 = System.nanoTime();
+            sink += chain.applyAsLong(calls);
+            long t1 = System.nanoTime(), a1 = threadAllocatedBytes();
+            nanos = Math.min(nanos, t1 - t0);
+            bytes = Math.min(bytes, a1 - a0);
+        }
+        return new double[]{(double) nanos / calls, (double) bytes / calls};
+    }
+
+    public static void main(String[] args) {
+        int calls = args.length > 0 ? Integer.parseInt(args[0]) : 10_000_000;
+
+        // Q07/Q08 with MaybeInt
+        long none = MaybeInt.empty();
+        System.out.println(MaybeInt.isPresent(none));                         // false
+        System.out.println(MaybeInt.orElse(none, 7));                        // 7
+        long some = MaybeInt.of(-5);
+        System.out.println(MaybeInt.toString(MaybeInt.map(some, Math::abs))); // MaybeInt[5]
+        System.out.println(MaybeInt.orElseGet(some, () -> { throw new AssertionError("not evaluated"); })); // -5, lazy like orElseGet
+        System.out.println(Maybe.orElse(Maybe.map((String) null, String::length), 0));                     // 0
+
+        if (optionalChain(1_000) != maybeIntChain(1_000)) throw new AssertionError("chains disagree");
+
+        Map<String, IntToLongFunction> chains = new LinkedHashMap<>();
+        chains.put("Optional<Integer> map/filter/orElse", Q80_PrimitiveMaybe::optionalChain);
+        chains.put("OptionalInt (hand-written map/filter)", Q80_PrimitiveMaybe::optionalIntChain);
+        chains.put("MaybeInt map/filter/orElse", Q80_PrimitiveMaybe::maybeIntChain);
+        chains.put("MaybeLong map/filter/orElse", Q80_PrimitiveMaybe::maybeLongChain);
+        Map<String, double[]> results = new LinkedHashMap<>();
+        for (Map.Entry<String, IntToLongFunction> c : chains.entrySet()) {
+            double[] r = measure(c.getValue(), calls);
+            results.put(c.getKey(), r);
+            System.out.printf(Locale.ROOT, "%-40s %6.2f ns/call  %7.3f bytes/call%n", c.getKey(), r[0], r[1]);
+        }
+
+        // Regression check (this repository has no test suite): the Maybe paths must stay allocation-free.
+        // A small tolerance absorbs the occasional TLAB refill or JIT event during the measured loop.
+        for (String name : List.of("MaybeInt map/filter/orElse", "MaybeLong map/filter/orElse")) {
+            double bytesPerCall = results.get(name)[1];
+            if (bytesPerCall > 0.01) {
+                throw new AssertionError(name + " allocates " + bytesPerCall + " bytes/call; expected 0");
+            }
+        }
+        System.out.println("allocation check passed: Maybe paths allocate nothing per call");
+    }
+}
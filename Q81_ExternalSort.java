@@ -0,0 +1,377 @@
+// Q81: External-memory sort with collation keys, parallel runs and a memory-mapped k-way merge (builds on Q53)
+// Java example (requires Java 16 or later)
+//
+// Question: Q53 sorts with names.sort(String::compareToIgnoreCase). What does that cost for millions of strings,
+// and how do you sort more data than fits on the heap?
+// Answer: compareToIgnoreCase case-folds both strings, character by character, on every comparison, and a sort
+// makes about n log2 n comparisons (~20 per string for 1M strings). Fold each string once into a collation key
+// instead: its case-folded code points encoded as UTF-8. Unsigned byte order of UTF-8 is code point order, so
+// Arrays.compareUnsigned (a vectorized mismatch) orders keys the way compareToIgnoreCase orders the strings.
+// Input is then cut into runs that fit a memory budget; each run's keys are built in parallel and the run is
+// sorted with Arrays.parallelSort (stable, fork/join). If the input does not fit in one run, every sorted run is
+// written to a temporary file and all runs are merged in a single k-way pass that reads them through
+// memory-mapped windows - the OS page cache does the buffering, so a high fan-in costs no heap. Equal keys are
+// taken from the earlier run first, which keeps the whole sort stable, like List.sort.
+//
+// Run:  java Q81_ExternalSort [inMemorySizes] [fileRecords] [budgetMB]
+//       java -Xmx256m Q81_ExternalSort 1000000 50000000 64     (input file several times larger than the heap)
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+public class Q81_ExternalSort {
+
+    // Case-folded UTF-8 bytes of `s`; compare two keys with Arrays.compareUnsigned
+    public static byte[] collationKey(String s) {
+        int n = s.length();
+        byte[] out = new byte[n]; // exact for ASCII, grown once otherwise
+        int len = 0;
+        for (int i = 0; i < n; ) {
+            int cp = s.codePointAt(i);
+            i += Character.charCount(cp);
+            if (cp < 0x80) {
+                if (cp >= 'A' && cp <= 'Z') cp += 'a' - 'A';
+            } else {
+                cp = Character.toLowerCase(Character.toUpperCase(cp)); // the folding compareToIgnoreCase applies
+            }
+            int bytes = cp < 0x80 ? 1 : cp < 0x800 ? 2 : cp < 0x10000 ? 3 : 4;
+            if (len + bytes > out.length) out = Arrays.copyOf(out, Math.max(out.length * 2, len + bytes + 3 * (n - i)));
+            switch (bytes) {
+                case 1 -> out[len++] = (byte) cp;
+                case 2 -> {
+                    out[len++] = (byte) (0xC0 | cp >> 6);
+                    out[len++] = (byte) (0x80 | cp & 0x3F);
+                }
+                case 3 -> {
+                    out[len++] = (byte) (0xE0 | cp >> 12);
+                    out[len++] = (byte) (0x80 | cp >> 6 & 0x3F);
+                    out[len++] = (byte) (0x80 | cp & 0x3F);
+                }
+                default -> {
+                    out[len++] = (byte) (0xF0 | cp >> 18);
+                    out[len++] = (byte) (0x80 | cp >> 12 & 0x3F);
+                    out[len++] = (byte) (0x80 | cp >> 6 & 0x3F);
+                    out[len++] = (byte) (0x80 | cp & 0x3F);
+                }
+            }
+        }
+        return len == out.length ? out : Arrays.copyOf(out, len);
+    }
+
+    // The first 8 key bytes as an unsigned big-endian long: most comparisons end there, without touching the array
+    record Keyed(long prefix, byte[] key, String value) {
+        Keyed(byte[] key, String value) { this(prefixOf(key), key, value); }
+    }
+
+    static long prefixOf(byte[] key) {
+        long p = 0;
+        for (int i = 0; i < 8; i++) p = p << 8 | (i < key.length ? key[i] & 0xFF : 0);
+        return p;
+    }
+
+    static final Comparator<Keyed> BY_KEY = (a, b) -> {
+        int c = Long.compareUnsigned(a.prefix(), b.prefix());
+        return c != 0 ? c : Arrays.compareUnsigned(a.key(), b.key());
+    };
+
+    public static final class ExternalSorter {
+        // Heap per buffered record besides its characters: Keyed, key array and String headers, references
+        static final int RECORD_OVERHEAD = 104;
+
+        public record Stats(long records, int runs, long spilledBytes, long runNanos, long mergeNanos) {}
+
+        // Receives the sorted values: as Strings when everything fit in memory, as UTF-8 bytes from the merge
+        interface Output {
+            void string(String s) throws IOException;
+
+            void utf8(byte[] bytes, int length) throws IOException;
+        }
+
+        private final long memoryBudget;
+        private final Path tempDir;
+
+        public ExternalSorter(long memoryBudgetBytes, Path tempDir) {
+            if (memoryBudgetBytes <= 0) throw new IllegalArgumentException("memoryBudgetBytes must be positive");
+            this.memoryBudget = memoryBudgetBytes;
+            this.tempDir = tempDir;
+        }
+
+        public Stats sort(Iterator<String> input, Consumer<? super String> output) throws IOException {
+            return sort(input, new Output() {
+                @Override public void string(String s) { output.accept(s); }
+
+                @Override public void utf8(byte[] bytes, int length) { output.accept(new String(bytes, 0, length, UTF_8)); }
+            });
+        }
+
+        // Sorts the lines of a UTF-8 text file into `output`; merged lines are copied as bytes, never decoded
+        public Stats sortLines(Path input, Path output) throws IOException {
+            try (Stream<String> lines = Files.lines(input);
+                 OutputStream out = new BufferedOutputStream(Files.newOutputStream(output), 1 << 16)) {
+                return sort(lines.iterator(), new Output() {
+                    @Override
+                    public void string(String s) throws IOException {
+                        out.write(s.getBytes(UTF_8));
+                        out.write('\n');
+                    }
+
+                    @Override
+                    public void utf8(byte[] bytes, int length) throws IOException {
+                        out.write(bytes, 0, length);
+                        out.write('\n');
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        }
+
+        private Stats sort(Iterator<String> input, Output output) throws IOException {
+            List<Path> runs = new ArrayList<>();
+            List<String> batch = new ArrayList<>();
+            long records = 0, spilledBytes = 0, runNanos = 0;
+            try {
+                do {
+                    batch.clear();
+                    for (long bytes = 0; bytes < memoryBudget && input.hasNext(); ) {
+                        String s = input.next();
+                        batch.add(s);
+                        bytes += RECORD_OVERHEAD + 2L * s.length();
+                    }
+                    records += batch.size();
+                    long t0 = System.nanoTime();
+                    if (runs.isEmpty() && !input.hasNext()) { // everything fit: no disk I/O at all
+                        for (Keyed k : sortedRun(batch)) output.string(k.value());
+                        return new Stats(records, 1, 0, System.nanoTime() - t0, 0);
+                    }
+                    Path run = spill(batch);
+                    runs.add(run);
+                    spilledBytes += Files.size(run);
+                    runNanos += System.nanoTime() - t0;
+                } while (input.hasNext());
+                long t1 = System.nanoTime();
+                merge(runs, output);
+                return new Stats(records, runs.size(), spilledBytes, runNanos, System.nanoTime() - t1);
+            } finally {
+                for (Path run : runs) Files.deleteIfExists(run);
+            }
+        }
+
+        static Keyed[] sortedRun(List<String> batch) {
+            Keyed[] run = new Keyed[batch.size()];
+            Arrays.parallelSetAll(run, i -> {
+                String s = batch.get(i);
+                return new Keyed(collationKey(s), s);
+            });
+            Arrays.parallelSort(run, BY_KEY);
+            return run;
+        }
+
+        // Run file format, per record: int keyLength, int valueLength, key bytes, UTF-8 value bytes
+        private Path spill(List<String> batch) throws IOException {
+            Keyed[] run = sortedRun(batch);
+            Path file = Files.createTempFile(tempDir, "q81-run-", ".bin");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 1 << 16))) {
+                for (Keyed k : run) {
+                    byte[] value = k.value().getBytes(UTF_8);
+                    out.writeInt(k.key().length);
+                    out.writeInt(value.length);
+                    out.write(k.key());
+                    out.write(value);
+                }
+            } catch (IOException | RuntimeException e) {
+                Files.deleteIfExists(file);
+                throw e;
+            }
+            return file;
+        }
+
+        private static void merge(List<Path> runs, Output output) throws IOException {
+            PriorityQueue<RunCursor> heap = new PriorityQueue<>(runs.size());
+            List<RunCursor> open = new ArrayList<>(runs.size());
+            try {
+                for (int i = 0; i < runs.size(); i++) {
+                    RunCursor c = new RunCursor(runs.get(i), i);
+                    open.add(c);
+                    if (c.advance()) heap.add(c);
+                }
+                for (RunCursor c; (c = heap.poll()) != null; ) {
+                    output.utf8(c.value, c.valueLength);
+                    if (c.advance()) heap.add(c);
+                }
+            } finally {
+                for (RunCursor c : open) c.close();
+            }
+        }
+    }
+
+    // Reads one run file front to back through a sliding memory-mapped window, reusing its key/value buffers.
+    // A mapping is released when its buffer is garbage collected; the file itself can be deleted right away (POSIX).
+    static final class RunCursor implements Comparable<RunCursor>, Closeable {
+        static final int WINDOW = 64 << 20;
+
+        private final FileChannel channel;
+        private final long size;
+        private final int run; // tie-breaker: equal keys come from earlier runs first (stability)
+        private MappedByteBuffer window;
+        private long windowStart, position;
+        byte[] key = new byte[64], value = new byte[64];
+        int keyLength, valueLength;
+
+        RunCursor(Path file, int run) throws IOException {
+            this.channel = FileChannel.open(file, StandardOpenOption.READ);
+            this.size = channel.size();
+            this.run = run;
+        }
+
+        boolean advance() throws IOException {
+            if (position == size) return false;
+            ByteBuffer w = window(8);
+            keyLength = w.getInt();
+            valueLength = w.getInt();
+            position += 8;
+            if (key.length < keyLength) key = new byte[Math.max(keyLength, key.length * 2)];
+            if (value.length < valueLength) value = new byte[Math.max(valueLength, value.length * 2)];
+            window(keyLength + valueLength).get(key, 0, keyLength).get(value, 0, valueLength);
+            position += keyLength + valueLength;
+            return true;
+        }
+
+        // The window positioned at `position` with `bytes` readable; remapped when a record crosses its end
+        private ByteBuffer window(int bytes) throws IOException {
+            if (position + bytes > size) throw new EOFException("truncated run file");
+            if (window == null || position + bytes > windowStart + window.limit()) {
+                if (bytes > WINDOW) throw new IOException("record of " + bytes + " bytes is larger than the mapping window");
+                windowStart = position;
+                window = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(WINDOW, size - position));
+            }
+            return window.position((int) (position - windowStart));
+        }
+
+        @Override
+        public int compareTo(RunCursor o) {
+            int c = Arrays.compareUnsigned(key, 0, keyLength, o.key, 0, o.keyLength);
+            return c != 0 ? c : Integer.compare(run, o.run);
+        }
+
+        @Override
+        public void close() throws IOException {
+            window = null;
+            channel.close();
+        }
+    }
+
+    static final char[] LETTERS = "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZéÉäÄøØ".toCharArray();
+
+    static String randomName(SplittableRandom rnd) {
+        char[] c = new char[5 + rnd.nextInt(11)];
+        for (int i = 0; i < c.length; i++) c[i] = LETTERS[rnd.nextInt(LETTERS.length)];
+        return new String(c);
+    }
+
+    // Best of `repeats`, in milliseconds
+    static double time(int repeats, Runnable sort) {
+        long best = Long.MAX_VALUE;
+        for (int r = 0; r < repeats; r++) {
+            long t0 = System.nanoTime();
+            sort.run();
+            best = Math.min(best, System.nanoTime() - t0);
+        }
+        return best / 1e6;
+    }
+
+    static List<String> sortWith(ExternalSorter sorter, List<String> data) {
+        List<String> out = new ArrayList<>(data.size());
+        try {
+            sorter.sort(data.iterator(), out::add);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out;
+    }
+
+    public static void main(String[] args) throws IOException {
+        int[] sizes = Arrays.stream((args.length > 0 ? args[0] : "1000000,4000000").split(",")).mapToInt(Integer::parseInt).toArray();
+        long fileRecords = args.length > 1 ? Long.parseLong(args[1]) : 20_000_000;
+        long budget = (args.length > 2 ? Long.parseLong(args[2]) : 64) << 20;
+        Path tmp = Files.createTempDirectory("q81-");
+        try {
+            // Q53 with collation keys: the same (stable) order as compareToIgnoreCase
+            List<String> names = new ArrayList<>(List.of("Zoe", "anna", "Bob", "zoë", "Anna", "ANNA"));
+            List<String> sorted = sortWith(new ExternalSorter(budget, tmp), names);
+            names.sort(String::compareToIgnoreCase);
+            System.out.println(sorted + " same as List.sort: " + sorted.equals(names)); // [anna, Anna, ANNA, Bob, Zoe, zoë]
+
+            System.out.printf(Locale.ROOT, "cores=%d  max heap=%,d MB  budget=%,d MB%n",
+                    Runtime.getRuntime().availableProcessors(), Runtime.getRuntime().maxMemory() >> 20, budget >> 20);
+            ExternalSorter inMemory = new ExternalSorter(Long.MAX_VALUE, tmp);
+            ExternalSorter spilling = new ExternalSorter(budget, tmp);
+            for (int n : sizes) {
+                SplittableRandom rnd = new SplittableRandom(42);
+                List<String> data = new ArrayList<>(n);
+                for (int i = 0; i < n; i++) data.add(randomName(rnd));
+
+                List<String> expected = new ArrayList<>(data);
+                expected.sort(String::compareToIgnoreCase);
+                if (!expected.equals(sortWith(inMemory, data)) || !expected.equals(sortWith(spilling, data))) {
+                    throw new AssertionError("collation key order differs from compareToIgnoreCase");
+                }
+                int runs;
+                try {
+                    runs = spilling.sort(data.iterator(), s -> { }).runs();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                double listSort = time(3, () -> new ArrayList<>(data).sort(String::compareToIgnoreCase));
+                double keyed = time(3, () -> sortWith(inMemory, data));
+                double external = time(3, () -> sortWith(spilling, data));
+                System.out.printf(Locale.ROOT, "n=%,11d  List.sort(compareToIgnoreCase) %8.0f ms   collation keys in memory %8.0f ms (%.1fx)   "
+                        + "spill+merge %d runs %8.0f ms%n", n, listSort, keyed, listSort / keyed, runs, external);
+            }
+
+            // Beyond the heap: a file whose Strings alone would not fit, sorted line by line within the budget
+            Path input = tmp.resolve("input.txt"), output = tmp.resolve("sorted.txt");
+            SplittableRandom rnd = new SplittableRandom(7);
+            long chars = 0;
+            try (BufferedWriter w = Files.newBufferedWriter(input)) {
+                for (long i = 0; i < fileRecords; i++) {
+                    String s = randomName(rnd);
+                    chars += s.length();
+                    w.write(s);
+                    w.newLine();
+                }
+            }
+            long heapNeeded = fileRecords * ExternalSorter.RECORD_OVERHEAD + 2 * chars;
+            System.out.printf(Locale.ROOT, "file: %,d lines, %,d MB on disk; sorting in memory would need ~%,d MB of heap (max heap %,d MB)%n",
+                    fileRecords, Files.size(input) >> 20, heapNeeded >> 20, Runtime.getRuntime().maxMemory() >> 20);
+            long t0 = System.nanoTime();
+            ExternalSorter.Stats stats = spilling.sortLines(input, output);
+            long millis = (System.nanoTime() - t0) / 1_000_000;
+            System.out.printf(Locale.ROOT, "sortLines: %,d ms  (runs %d: %,d ms, spilled %,d MB; merge %,d ms)%n", millis,
+                    stats.runs(), stats.runNanos() / 1_000_000, stats.spilledBytes() >> 20, stats.mergeNanos() / 1_000_000);
+
+            long lines = 0;
+            String previous = null;
+            try (BufferedReader r = Files.newBufferedReader(output)) {
+                for (String line; (line = r.readLine()) != null; previous = line, lines++) {
+                    if (previous != null && previous.compareToIgnoreCase(line) > 0) throw new AssertionError("out of order at line " + lines);
+                }
+            }
+            if (lines != fileRecords) throw new AssertionError("expected " + fileRecords + " lines, got " + lines);
+            System.out.println("output verified: " + lines + " lines in compareToIgnoreCase order");
+        } finally {
+            try (Stream<Path> files = Files.list(tmp)) {
+                for (Path p : (Iterable<Path>) files::iterator) Files.deleteIfExists(p);
+            }
+            Files.deleteIfExists(tmp);
+        }
+    }
+}